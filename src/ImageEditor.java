@@ -2,11 +2,15 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
 import controller.Controller;
+import model.ImageModel;
+import model.ImageStore;
+import model.ResultCache;
 import view.ImageEditorView;
 
 /**
@@ -30,10 +34,10 @@ public class ImageEditor {
   private static void handleCommandLineArguments(String[] args) {
     switch (args[0]) {
       case "-file":
-        if (args.length == 2) {
+        if (args.length == 2 || (args.length == 3 && Controller.isLazyOption(args[2]))) {
           String scriptFilePath = args[1];
           // Execute script file and shut down
-          executeScriptFile(scriptFilePath);
+          executeScriptFile(scriptFilePath, args.length == 3);
         } else {
           System.out.println("Invalid command line arguments.");
         }
@@ -47,12 +51,24 @@ public class ImageEditor {
     }
   }
 
-  private static void executeScriptFile(String scriptFilePath) {
+  private static void executeScriptFile(String scriptFilePath, boolean lazy) {
     // Implement the logic to read and execute the script file
     System.out.println("Executing script file: " + scriptFilePath);
     try (FileReader reader = new FileReader(scriptFilePath)) {
-      Controller controller = new Controller(reader);
-      controller.executeCommands();
+      // The images of the script live in a store of their own, which drops the images no
+      // remaining command reads once it is over its budget.
+      long budget = Long.getLong("imageops.store.bytes", ImageStore.DEFAULT_MAX_BYTES);
+      ImageModel model = new ImageModel(ForkJoinPool.commonPool(),
+              new ResultCache(ResultCache.DEFAULT_MAX_BYTES), new ImageStore(budget));
+      Controller controller = new Controller(reader, model);
+      controller.executeScript(lazy);
+      ImageStore store = model.getImageStore();
+      if (store.getSpills() > 0) {
+        System.out.println("Image store: spilled " + store.getSpills() + " images ("
+                + store.getSpilledBytes() + " bytes written), reloaded " + store.getReloads()
+                + " images (" + store.getReloadedBytes() + " bytes read) with a budget of "
+                + budget + " bytes.");
+      }
     } catch (IOException e) {
       System.out.println("Error reading file");
     }
@@ -4,12 +4,17 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
+import model.ImageContent;
 import model.ImageModel;
 import view.ImageEditorView;
 
@@ -22,12 +27,15 @@ import static java.lang.System.exit;
  */
 public class Controller implements ControllerFeatures {
 
+  private static final Pattern FILE_PATH = Pattern.compile("'(.*?)'");
+  private static final Pattern FILE_PATH_AND_NAME = Pattern.compile("'(.*?)'\\s(.+)");
+
   private final Reader reader;
 
   private static String filePath = null;
   private static String extension = null;
 
-  private final ImageModel imageObj = new ImageModel();
+  private final ImageModel imageObj;
 
   private ImageEditorView view;
 
@@ -37,7 +45,19 @@ public class Controller implements ControllerFeatures {
    * @param reader The reader to use for reading input from the user.
    */
   public Controller(Reader reader) {
+    this(reader, new ImageModel());
+  }
+
+  /**
+   * Constructs a controller object with the given reader, working on the given model. A model
+   * with a bounded image store of its own lets long scripts run within a fixed amount of memory.
+   *
+   * @param reader The reader to use for reading input from the user.
+   * @param model  The model holding the images.
+   */
+  public Controller(Reader reader, ImageModel model) {
     this.reader = reader;
+    this.imageObj = model;
   }
 
   /**
@@ -48,8 +68,7 @@ public class Controller implements ControllerFeatures {
    * @throws IOException If an I/O error occurs while executing the command.
    */
   public String parseAndExecute(String command) throws IOException {
-    int[][][] rgb;
-    double[][] pixels;
+    ImageContent image;
     String sourceImageName;
     String message = null;
     System.out.println("Executing command: " + command);
@@ -79,8 +98,12 @@ public class Controller implements ControllerFeatures {
       case "load":
         arg1 = filePath;
         if (arg1 != null) {
-          rgb = ioImageOperations.load(arg1, extension);
-          imageObj.loadImageInMap(arg2, rgb);
+          image = ioImageOperations.loadImage(arg1, extension, arg2);
+          if (image != null) {
+            imageObj.loadImageInMap(image);
+          } else {
+            System.out.println("Failed to load the image from: " + arg2);
+          }
           message = "Operation Successful";
         } else {
           message = "Unable to load";
@@ -89,9 +112,11 @@ public class Controller implements ControllerFeatures {
       case "save":
         arg1 = filePath;
         if (arg1 != null) {
-          rgb = imageObj.getRgbDataMap(arg2);
-          pixels = imageObj.getPixels(arg2);
-          ioImageOperations.save(arg1, arg2, extension, rgb, pixels);
+          image = imageObj.getImage(arg2);
+          // An optional "binary" after the image name saves a PPM file in binary (P6) form.
+          String[] options = command.substring(command.lastIndexOf('\'') + 1).trim().split(" ");
+          boolean binary = options.length > 1 && options[1].equals("binary");
+          ioImageOperations.save(arg1, extension, image, binary);
           message = "Operation Successful";
         } else {
           message = "Unable to save";
@@ -145,16 +170,34 @@ public class Controller implements ControllerFeatures {
         if (!imageObj.getImageMap().containsKey(sourceImageName)) {
           message = "Source Image not found";
         } else {
-          if (parts.length > 3 && parts[3].equals("split")) {
-            int splitPercentage = Integer.parseInt(parts[4]);
-            if (splitPercentage < 0 || splitPercentage > 100) {
-              message = "Split percentage should be between 0 and 100";
-            } else {
-              imageObj.blurImage(sourceImageName, arg2, splitPercentage);
-              message = "Operation Successful";
+          // Optional "split <p>", "radius <r>" and "sigma <s>" pairs after the image names.
+          int splitPercentage = 0;
+          int radius = 0;
+          double sigma = 0;
+          for (int i = 3; i + 1 < parts.length; i += 2) {
+            if (parts[i].equals("split")) {
+              splitPercentage = Integer.parseInt(parts[i + 1]);
+            } else if (parts[i].equals("radius")) {
+              radius = Integer.parseInt(parts[i + 1]);
+            } else if (parts[i].equals("sigma")) {
+              sigma = Double.parseDouble(parts[i + 1]);
             }
+          }
+          if (splitPercentage < 0 || splitPercentage > 100) {
+            message = "Split percentage should be between 0 and 100";
+          } else if (radius < 0 || sigma < 0) {
+            message = "Blur radius and sigma should be positive";
+          } else if (radius == 0 && sigma == 0) {
+            imageObj.blurImage(sourceImageName, arg2, splitPercentage);
+            message = "Operation Successful";
           } else {
-            imageObj.blurImage(sourceImageName, arg2, 0);
+            // A Gaussian is negligible beyond three standard deviations.
+            if (radius == 0) {
+              radius = Math.max(1, (int) Math.ceil(3 * sigma));
+            } else if (sigma == 0) {
+              sigma = radius / 3.0;
+            }
+            imageObj.blurImage(sourceImageName, arg2, splitPercentage, radius, sigma);
             message = "Operation Successful";
           }
         }
@@ -446,8 +489,24 @@ public class Controller implements ControllerFeatures {
             message = "Compression percentage should be between 0 and 100";
           } else {
             String destImageName = parts[3];
-            imageObj.compress(sourceImageName, destImageName, percentage);
-            message = "Operation Successful";
+            // Optional "levels <n>" (or "levels full") and "float" after the image names.
+            int levels = 1;
+            boolean floatPrecision = false;
+            for (int i = 4; i < parts.length; i++) {
+              if (parts[i].equals("levels") && i + 1 < parts.length) {
+                i++;
+                levels = parts[i].equals("full") ? Integer.MAX_VALUE : Integer.parseInt(parts[i]);
+              } else if (parts[i].equals("float")) {
+                floatPrecision = true;
+              }
+            }
+            if (levels < 1) {
+              message = "Compression levels should be at least 1";
+            } else {
+              imageObj.compress(sourceImageName, destImageName, percentage, levels,
+                      floatPrecision);
+              message = "Operation Successful";
+            }
           }
         }
         break;
@@ -456,7 +515,8 @@ public class Controller implements ControllerFeatures {
         if (scriptFilename == null) {
           message = "Script file not found";
         }
-        executeScriptFromFile(scriptFilename);
+        // "-file <path> -lazy" only computes the images that the script saves.
+        executeScriptFromFile(scriptFilename, isLazyOption(arg2));
         exit(0);
         break;
       default:
@@ -467,12 +527,35 @@ public class Controller implements ControllerFeatures {
     return message;
   }
 
+  /**
+   * Checks whether an argument after "-file path" asks for a lazy run. It is spelled "-lazy" on
+   * the command line as in a script or an interactive session, and "lazy" is accepted as well.
+   *
+   * @param argument The argument, or null if there is none.
+   * @return True if the argument asks for a lazy run.
+   */
+  public static boolean isLazyOption(String argument) {
+    return "-lazy".equals(argument) || "lazy".equals(argument);
+  }
+
   /**
    * Executes a script loaded from a file, processing each line as a command.
    *
    * @param scriptFilename The filename of the script to execute.
    */
   public void executeScriptFromFile(String scriptFilename) {
+    executeScriptFromFile(scriptFilename, false);
+  }
+
+  /**
+   * Executes a script loaded from a file, processing each line as a command. In a lazy run,
+   * only the commands that the saved images depend on are executed, and the skipped commands are
+   * reported once the script is done.
+   *
+   * @param scriptFilename The filename of the script to execute.
+   * @param lazy           Whether to skip the commands no saved image depends on.
+   */
+  public void executeScriptFromFile(String scriptFilename, boolean lazy) {
     try {
       File scriptFile = new File(scriptFilename);
       if (!scriptFile.exists()) {
@@ -481,17 +564,10 @@ public class Controller implements ControllerFeatures {
       }
 
       Scanner sc = new Scanner(scriptFile);
-      while (sc.hasNextLine()) {
-        String line = sc.nextLine().trim();
-        if (!line.startsWith("#") && !line.isEmpty()) { // Skip comments and empty lines
-          parseAndExecute(line);
-        }
-      }
+      executeScriptLines(sc, lazy);
       sc.close();
     } catch (FileNotFoundException e) {
       System.out.println("Error reading script file: " + e.getMessage());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
     }
   }
 
@@ -501,7 +577,7 @@ public class Controller implements ControllerFeatures {
    * @param filePath The path to the image file.
    * @return The file format or null if the format is unsupported or not recognized.
    */
-  private String identifyFileFormat(String filePath) {
+  static String identifyFileFormat(String filePath) {
     // Get the index of the last dot in the file path
     int lastDotIndex = filePath.lastIndexOf('.');
 
@@ -518,13 +594,16 @@ public class Controller implements ControllerFeatures {
   }
 
   /**
-   * Sets the view for this controller. Calls the addFeatures function in the view.
+   * Sets the view for this controller. Calls the addFeatures function in the view. The view
+   * previews the same filter with one split after another as its slider moves, so the model is
+   * switched to its split-preview mode, which computes each filtered image only once.
    *
    * @param view The view to use.
    */
   @Override
   public void setView(ImageEditorView view) {
     this.view = view;
+    imageObj.setSplitPreview(true);
     view.addFeatures(this);
   }
 
@@ -607,6 +686,13 @@ public class Controller implements ControllerFeatures {
     return m;
   }
 
+  @Override
+  public String applyFeatures(String command, String destImageName, BooleanSupplier cancelled) {
+    String[] message = new String[1];
+    imageObj.runCancellable(cancelled, () -> message[0] = applyFeatures(command, destImageName));
+    return message[0];
+  }
+
   /**
    * Executes commands read from the input source (reader). The method reads each line
    * from the input source, trims leading and trailing whitespaces, and skips comments
@@ -630,6 +716,68 @@ public class Controller implements ControllerFeatures {
     }
   }
 
+  /**
+   * Executes a complete script read from the input source (reader). Unlike
+   * {@link #executeCommands()}, the whole script is compiled before it is executed: every line
+   * is checked first, and a script with an invalid line is not run at all. Consecutive commands
+   * that transform each pixel on its own (brighten, sepia, greyscale, the components and
+   * levels-adjust), where each command transforms the image produced by the previous one, are
+   * fused into a single pass over the pixels; the images in between are only stored when a later
+   * command reads them.
+   */
+  public void executeScript() {
+    executeScript(false);
+  }
+
+  /**
+   * Executes a complete script read from the input source (reader), as
+   * {@link #executeScript()} does. In a lazy run, only the commands that the saved images depend
+   * on are executed: images that are never saved, and nothing saved is computed from, are not
+   * computed at all. The skipped commands are reported once the script is done.
+   *
+   * @param lazy Whether to skip the commands no saved image depends on.
+   */
+  public void executeScript(boolean lazy) {
+    Scanner sc = new Scanner(reader);
+    executeScriptLines(sc, lazy);
+    sc.close();
+  }
+
+  private void executeScriptLines(Scanner sc, boolean lazy) {
+    List<String> lines = new ArrayList<>();
+    while (sc.hasNextLine()) {
+      lines.add(sc.nextLine());
+    }
+
+    // The whole script is checked before the first command runs.
+    ScriptPlan plan;
+    try {
+      plan = ScriptCompiler.compile(lines, imageObj.getImageMap().keySet());
+    } catch (IllegalArgumentException e) {
+      System.out.println("Script not executed. " + e.getMessage());
+      return;
+    }
+    List<ScriptCommand> skipped = lazy ? plan.unneededCommands()
+            : Collections.<ScriptCommand>emptyList();
+    if (lazy) {
+      plan = plan.lazy();
+    }
+    plan = plan.fused();
+
+    // Commands that do not depend on each other run in parallel, on the pool of the model.
+    new ScriptScheduler(imageObj.getPool()).execute(plan, imageObj,
+            new IOImageOperations());
+
+    if (lazy) {
+      System.out.println("Lazy run: executed " + plan.getCommands().size() + " commands, skipped "
+              + skipped.size() + " that no saved image depends on.");
+      for (ScriptCommand command : skipped) {
+        System.out.println("  Skipped line " + command.getLineNumber() + ": "
+                + String.join("; ", command.getLines()));
+      }
+    }
+  }
+
   /**
    * Extracts the file path from a given command string. It utilizes a regular expression to
    * extract the content inside the single quotes, representing the file path.
@@ -642,8 +790,7 @@ public class Controller implements ControllerFeatures {
     // Check if the command starts with "load" or "save"
     if (command.trim().startsWith("load") || command.trim().startsWith("save")) {
       // Use regular expression to extract the file path inside single quotes
-      Pattern pattern = Pattern.compile("'(.*?)'");
-      Matcher matcher = pattern.matcher(command);
+      Matcher matcher = FILE_PATH.matcher(command);
 
       // Check if there is a match
       if (matcher.find()) {
@@ -670,8 +817,7 @@ public class Controller implements ControllerFeatures {
     // Check if the command starts with "load" or "save"
     if (command.trim().startsWith("load") || command.trim().startsWith("save")) {
       // Use regular expressions to extract the file path and the second part
-      Pattern pattern = Pattern.compile("'(.*?)'\\s(.+)");
-      Matcher matcher = pattern.matcher(command);
+      Matcher matcher = FILE_PATH_AND_NAME.matcher(command);
 
       if (matcher.find()) {
         String afterFilePath = matcher.group(2);
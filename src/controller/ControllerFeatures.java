@@ -1,5 +1,7 @@
 package controller;
 
+import java.util.function.BooleanSupplier;
+
 import view.ImageEditorView;
 
 /**
@@ -40,4 +42,16 @@ public interface ControllerFeatures {
    *                             features.
    */
   String applyFeatures(String command, String destinationImageName);
+
+  /**
+   * Applies features to an image as {@link #applyFeatures(String, String)} does, but abandons a
+   * long filter such as blur or compress part way once the given condition holds. An abandoned
+   * filter stores no result.
+   *
+   * @param command              The command string specifying the feature application operation.
+   * @param destinationImageName The name to be assigned to the resulting image after applying
+   *                             features.
+   * @param cancelled            The condition under which the filter is abandoned.
+   */
+  String applyFeatures(String command, String destinationImageName, BooleanSupplier cancelled);
 }
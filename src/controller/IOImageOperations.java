@@ -2,14 +2,15 @@ package controller;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.Objects;
-import java.util.Scanner;
 
 import javax.imageio.ImageIO;
 
+import model.ImageContent;
+
 /**
  * The IOImageOperations class provides methods for converting images to RGB format, reading image
  * data from PPM files, loading images, and saving images in various formats including PNG, JPG
@@ -18,12 +19,13 @@ import javax.imageio.ImageIO;
 public class IOImageOperations {
 
   /**
-   * Converts a PNG image to RGB format and returns the corresponding RGB data.
+   * Converts a PNG image to RGB format and returns the corresponding image.
    *
    * @param imagePath The file path of the PNG image.
-   * @return The RGB data of the PNG image as a three-dimensional array.
+   * @param imageName The name to give to the loaded image.
+   * @return The image holding the packed RGB data of the PNG image.
    */
-  private int[][][] convertPNGToRGB(String imagePath) {
+  private ImageContent convertPNGToRGB(String imagePath, String imageName) {
     System.out.println("convertPNGToRGB");
     int height;
     int width;
@@ -43,17 +45,9 @@ public class IOImageOperations {
       width = bufferedImage.getWidth();
       height = bufferedImage.getHeight();
 
-      int[][][] imageRGBData = new int[height][width][3];
-
-      for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-          int rgb = bufferedImage.getRGB(x, y);
-          imageRGBData[y][x][0] = (rgb >> 16) & 0xFF; // Red component
-          imageRGBData[y][x][1] = (rgb >> 8) & 0xFF;  // Green component
-          imageRGBData[y][x][2] = rgb & 0xFF;         // Blue component
-        }
-      }
-      return imageRGBData;
+      // Keep the red, green and blue components and drop the alpha channel
+      int[] imageRGBData = RasterAccess.readRgb(bufferedImage);
+      return new ImageContent(imageName, width, height, imageRGBData);
     } catch (IOException e) {
       e.printStackTrace();
       System.out.println("Error while converting PNG to RGB: " + imagePath);
@@ -62,48 +56,23 @@ public class IOImageOperations {
   }
 
   /**
-   * Reads image RGB data from a PPM file and returns it as a three-dimensional array.
+   * Reads image RGB data from a PPM file and returns it as an image. Both plain (P3) and binary
+   * (P6) files are supported.
    *
-   * @param filename The file path of the PPM image.
-   * @return The RGB data of the PPM image as a three-dimensional array.
+   * @param filename  The file path of the PPM image.
+   * @param imageName The name to give to the loaded image.
+   * @return The image holding the packed RGB data of the PPM image.
    */
-  private int[][][] readImageRGBData(String filename) {
-    Scanner sc = null;
-
+  private ImageContent readImageRGBData(String filename, String imageName) {
     try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
+      return PPMFormat.read(Paths.get(filename), imageName);
+    } catch (NoSuchFileException e) {
       System.out.println("File " + filename + " not found!");
+      return null;
+    } catch (IOException e) {
+      System.out.println("Error while reading PPM file " + filename + ": " + e.getMessage());
+      return null;
     }
-
-    StringBuilder builder = new StringBuilder();
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
-      }
-    }
-
-    sc = new Scanner(builder.toString());
-
-    String token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-
-    int[][][] imageRGBData = new int[height][width][3];
-    int maxValue = sc.nextInt(); // Read the maximum color value
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        imageRGBData[i][j][0] = sc.nextInt(); // Red component
-        imageRGBData[i][j][1] = sc.nextInt(); // Green component
-        imageRGBData[i][j][2] = sc.nextInt(); // Blue component
-      }
-    }
-    return imageRGBData;
   }
 
 
@@ -117,13 +86,28 @@ public class IOImageOperations {
    * @return The RGB data of the loaded image as a three-dimensional array.
    */
   public int[][][] load(String imagePath, String extension) {
+    ImageContent image = loadImage(imagePath, extension, imagePath);
+    return image == null ? null : image.getRgbDataMap();
+  }
+
+  /**
+   * Loads an image from the specified file path and returns it with the given name. If it is a
+   * PNG or JPG image, then the convertPNGToRGB method is called. If it is a PPM image, then the
+   * readImageRGBData method is called.
+   *
+   * @param imagePath The file path of the image.
+   * @param extension The file extension of the image (e.g., "png", "ppm").
+   * @param imageName The name to give to the loaded image.
+   * @return The loaded image, or null if it could not be read.
+   */
+  public ImageContent loadImage(String imagePath, String extension, String imageName) {
 
     if (Objects.equals(extension, "png") || Objects.equals(extension, "jpg")) {
       System.out.println("in png or jpg");
-      return convertPNGToRGB(imagePath);
+      return convertPNGToRGB(imagePath, imageName);
     } else {
       System.out.println("in ppm");
-      return readImageRGBData(imagePath);
+      return readImageRGBData(imagePath, imageName);
     }
   }
 
@@ -138,80 +122,94 @@ public class IOImageOperations {
    */
   public void save(String imagePath, String imageName, String extension, int[][][] rgbData,
                    double[][] pixels) {
+    save(imagePath, imageName, extension, rgbData == null ? null
+            : new ImageContent(imageName, rgbData), pixels);
+  }
+
+  /**
+   * Saves an image as either a PNG, JPG or PPM file based on the specified extension.
+   *
+   * @param imagePath The file path where the image should be saved.
+   * @param extension The file extension indicating the format (e.g., "png", "ppm").
+   * @param image     The image to be saved.
+   */
+  public void save(String imagePath, String extension, ImageContent image) {
+    save(imagePath, extension, image, false);
+  }
+
+  /**
+   * Saves an image as either a PNG, JPG or PPM file based on the specified extension. PPM files
+   * can be saved either as plain text (P3) or in the much smaller and faster binary form (P6).
+   *
+   * @param imagePath The file path where the image should be saved.
+   * @param extension The file extension indicating the format (e.g., "png", "ppm").
+   * @param image     The image to be saved.
+   * @param binary    Whether a PPM file should be saved in binary form. Ignored for other
+   *                  formats.
+   */
+  public void save(String imagePath, String extension, ImageContent image, boolean binary) {
+    save(imagePath, image == null ? null : image.getName(), extension, image,
+            image == null ? null : image.getPixels(), binary);
+  }
+
+  private void save(String imagePath, String imageName, String extension, ImageContent image,
+                    double[][] pixels) {
+    save(imagePath, imageName, extension, image, pixels, false);
+  }
+
+  private void save(String imagePath, String imageName, String extension, ImageContent image,
+                    double[][] pixels, boolean binary) {
     System.out.println("Saving" + extension);
-    if (extension.equalsIgnoreCase("png")
+    if (image == null) {
+      System.out.println("RGB data is null for image: " + imageName);
+    } else if (extension.equalsIgnoreCase("png")
             || extension.equalsIgnoreCase("jpg")
             || extension.equalsIgnoreCase("jpeg")) {
-      savePNG(imagePath, imageName, extension, rgbData, pixels);
+      savePNG(imagePath, extension, image, pixels);
+    } else if (extension.equalsIgnoreCase("ppm") && binary) {
+      saveBinaryPPM(imagePath, image);
     } else if (extension.equalsIgnoreCase("ppm")) {
-      savePPM(imagePath, rgbData, pixels);
+      savePPM(imagePath, image);
     }
   }
 
-  private String convertToPPMFormat(int[][][] imageRGBData) {
-    StringBuilder ppmContent = new StringBuilder();
-    int height = imageRGBData.length;
-    int width = imageRGBData[0].length;
-
-    ppmContent.append("P3\n");
-    ppmContent.append(width + " " + height + "\n");
-    ppmContent.append("255\n");
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        ppmContent.append(imageRGBData[i][j][0] + " "); // Red component
-        ppmContent.append(imageRGBData[i][j][1] + " "); // Green component
-        ppmContent.append(imageRGBData[i][j][2] + " "); // Blue component
-      }
-      ppmContent.append("\n");
+  private void savePPM(String imagePath, ImageContent image) {
+    try {
+      PPMFormat.writePlain(Paths.get(imagePath), image);
+      System.out.println("Image saved as " + imagePath + " in the ppm format");
+    } catch (IOException e) {
+      System.out.println("Error in saving File");
     }
-
-    return ppmContent.toString();
   }
 
-  private void savePPM(String imagePath, int[][][] rgbData, double[][] pixels) {
-    String content = convertToPPMFormat(rgbData);
-
-    // Create a file and write the image content to it
-    File file = new File(imagePath);
-
+  private void saveBinaryPPM(String imagePath, ImageContent image) {
     try {
-      java.io.FileWriter fileWriter = new java.io.FileWriter(file);
-      fileWriter.write(content);
-      fileWriter.write(content);
-      fileWriter.close();
-      System.out.println("Image saved as " + imagePath + " in the ppm format");
-
-
+      PPMFormat.writeBinary(Paths.get(imagePath), image);
+      System.out.println("Image saved as " + imagePath + " in the binary ppm format");
     } catch (IOException e) {
       System.out.println("Error in saving File");
     }
-
   }
 
 
-  private void savePNG(String imagePath, String imageName, String extension, int[][][] rgbData,
+  private void savePNG(String imagePath, String extension, ImageContent image,
                        double[][] pixels) {
     System.out.println("SavingPNG");
     BufferedImage bufferedImage;
 
-    if (rgbData != null) {
-      if (pixels != null) {
-        bufferedImage = convertRGBAndPixelsDataToBufferedImage(rgbData, pixels);
-      } else {
-        bufferedImage = convertRGBDataToBufferedImage(rgbData);
-      }
-      File output = new File(imagePath);
-      System.out.println("Saviweng");
-      try {
-        javax.imageio.ImageIO.write(bufferedImage, extension, output);
-        System.out.println("Image saved as " + imagePath + " in the png format");
-      } catch (Exception e) {
-        System.out.println("Error in saving File");
-        e.printStackTrace(); // Print the stack trace for better error diagnostics
-      }
+    if (pixels != null) {
+      bufferedImage = convertRGBAndPixelsDataToBufferedImage(image.getRgbDataMap(), pixels);
     } else {
-      System.out.println("RGB data is null for image: " + imageName);
+      bufferedImage = convertRGBDataToBufferedImage(image);
+    }
+    File output = new File(imagePath);
+    System.out.println("Saviweng");
+    try {
+      javax.imageio.ImageIO.write(bufferedImage, extension, output);
+      System.out.println("Image saved as " + imagePath + " in the png format");
+    } catch (Exception e) {
+      System.out.println("Error in saving File");
+      e.printStackTrace(); // Print the stack trace for better error diagnostics
     }
   }
 
@@ -228,51 +226,26 @@ public class IOImageOperations {
     int height = rgbData.length;
     int width = rgbData[0].length;
 
-    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
+    // The grey value replaces the color of every pixel
+    int[] rgb = new int[width * height];
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
-        int r = rgbData[y][x][0];
-        int g = rgbData[y][x][1];
-        int b = rgbData[y][x][2];
-
         int grayValue = (int) (pixels[y][x] * 255); // Scale to 0-255 range
-
-        int rgb = (r << 16) | (g << 8) | b;
-        rgb = (rgb & 0xFF000000) | (grayValue << 16) | (grayValue << 8) | grayValue;
-
-        bufferedImage.setRGB(x, y, rgb);
+        rgb[y * width + x] = (grayValue << 16) | (grayValue << 8) | grayValue;
       }
     }
 
-    return bufferedImage;
+    return RasterAccess.writeRgb(rgb, width, height);
   }
 
   /**
-   * Converts RGB image data represented as a three-dimensional array into a `BufferedImage`.
+   * Converts the packed RGB data of an image into a `BufferedImage`.
    *
-   * @param rgbData The three-dimensional array representing the RGB image data.
+   * @param image The image holding the packed RGB data.
    * @return A `BufferedImage` object containing the image data.
    */
-  private BufferedImage convertRGBDataToBufferedImage(int[][][] rgbData) {
-    int height = rgbData.length;
-    int width = rgbData[0].length;
-
-    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int r = rgbData[y][x][0];
-        int g = rgbData[y][x][1];
-        int b = rgbData[y][x][2];
-
-        int rgb = (r << 16) | (g << 8) | b;
-
-        bufferedImage.setRGB(x, y, rgb);
-      }
-    }
-
-    return bufferedImage;
+  private BufferedImage convertRGBDataToBufferedImage(ImageContent image) {
+    return RasterAccess.writeRgb(image.getPackedRgb(), image.getWidth(), image.getHeight());
   }
 
 }
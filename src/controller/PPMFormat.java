@@ -0,0 +1,444 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.ImageContent;
+
+/**
+ * The `PPMFormat` class reads and writes plain (P3) and binary (P6) PPM files. A binary file is
+ * read a row at a time through a fixed size buffer, and the samples are copied from it straight
+ * into the packed pixels of the image. A plain file is parsed byte by byte as it streams in
+ * through a fixed size buffer, without building strings. Files are written through a fixed size
+ * buffer, with plain samples formatted straight into it, so saving takes the same amount of
+ * memory whatever the size of the image.
+ */
+final class PPMFormat {
+
+  /**
+   * The size of the buffers through which plain files are read and binary files are written.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private PPMFormat() {
+  }
+
+  /**
+   * Reads a PPM file, which may be either plain (P3) or binary (P6).
+   *
+   * @param path      The path of the file.
+   * @param imageName The name to give to the loaded image.
+   * @return The loaded image.
+   * @throws IOException If the file cannot be read or is not a valid PPM file.
+   */
+  static ImageContent read(Path path, String imageName) throws IOException {
+    if (isBinary(path)) {
+      return readBinary(path, imageName);
+    }
+    return readPlain(path, imageName);
+  }
+
+  /**
+   * Checks whether a file starts with the magic number of a binary PPM file.
+   *
+   * @param path The path of the file.
+   * @return True if the file starts with "P6".
+   * @throws IOException If the file cannot be read.
+   */
+  static boolean isBinary(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(2);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {
+        // Keep reading until both bytes are in or the file ends.
+      }
+      return magic.position() == 2 && magic.get(0) == 'P' && magic.get(1) == '6';
+    }
+  }
+
+  /**
+   * Reads a binary PPM file. Samples are scaled from the maximum value of the header to 0 to 255,
+   * rounding to the nearest value, and samples above the maximum value are read as the maximum.
+   *
+   * @param path      The path of the file.
+   * @param imageName The name to give to the loaded image.
+   * @return The loaded image.
+   * @throws IOException If the file cannot be read or is not a valid binary PPM file.
+   */
+  static ImageContent readBinary(Path path, String imageName) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      BinaryReader reader = new BinaryReader(channel);
+
+      if (reader.next() != 'P' || reader.next() != '6') {
+        throw new IOException("Invalid PPM file: binary file should begin with P6");
+      }
+      int width = readHeaderValue(reader);
+      int height = readHeaderValue(reader);
+      int maxValue = readHeaderValue(reader);
+      if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 65535) {
+        throw new IOException("Invalid PPM header");
+      }
+      int bytesPerSample = maxValue < 256 ? 1 : 2;
+      if ((long) width * height * 3 * bytesPerSample > Integer.MAX_VALUE) {
+        throw new IOException("Invalid PPM header");
+      }
+      // A single whitespace character separates the header from the samples.
+      int separator = reader.next();
+      if (separator == -1 || !Character.isWhitespace(separator)) {
+        throw new IOException("Invalid PPM header");
+      }
+
+      int[] scale = sampleScale(maxValue, bytesPerSample == 1 ? 256 : 65536);
+      int[] imageRGBData = new int[width * height];
+      byte[] row = new byte[width * 3 * bytesPerSample];
+      for (int y = 0; y < height; y++) {
+        reader.readFully(row);
+        int rowOffset = y * width;
+        if (bytesPerSample == 1) {
+          for (int x = 0, i = 0; x < width; x++, i += 3) {
+            imageRGBData[rowOffset + x] = ImageContent.pack(scale[row[i] & 0xFF],
+                    scale[row[i + 1] & 0xFF], scale[row[i + 2] & 0xFF]);
+          }
+        } else {
+          for (int x = 0, i = 0; x < width; x++, i += 6) {
+            imageRGBData[rowOffset + x] = ImageContent.pack(scale[wideSample(row, i)],
+                    scale[wideSample(row, i + 2)], scale[wideSample(row, i + 4)]);
+          }
+        }
+      }
+      return new ImageContent(imageName, width, height, imageRGBData);
+    }
+  }
+
+  private static int wideSample(byte[] row, int index) {
+    return ((row[index] & 0xFF) << 8) | (row[index + 1] & 0xFF);
+  }
+
+  /**
+   * Builds the table mapping every sample to 0 to 255, as {@code sample * 255 / maxValue}
+   * rounded to the nearest value. Samples above the maximum value map to 255.
+   *
+   * @param maxValue The maximum value of the header.
+   * @param size     The number of samples the table covers.
+   * @return The scaled value of every sample below the size.
+   */
+  private static int[] sampleScale(int maxValue, int size) {
+    int[] scale = new int[size];
+    for (int sample = 0; sample < size; sample++) {
+      scale[sample] = (Math.min(sample, maxValue) * 255 + maxValue / 2) / maxValue;
+    }
+    return scale;
+  }
+
+  /**
+   * Reads the next decimal value of the header, skipping the whitespace and comments before it.
+   */
+  private static int readHeaderValue(BinaryReader reader) throws IOException {
+    int next = reader.peek();
+    while (next != -1) {
+      if (next == '#') {
+        while (next != -1 && next != '\n') {
+          // Skip the rest of the comment.
+          next = reader.next();
+        }
+      } else if (Character.isWhitespace(next)) {
+        reader.next();
+      } else {
+        break;
+      }
+      next = reader.peek();
+    }
+
+    int value = 0;
+    int digits = 0;
+    while (reader.peek() >= '0' && reader.peek() <= '9') {
+      value = value * 10 + (reader.next() - '0');
+      if (++digits > 9) {
+        throw new IOException("Invalid PPM header");
+      }
+    }
+    if (digits == 0) {
+      throw new IOException("Invalid PPM header");
+    }
+    return value;
+  }
+
+  /**
+   * Reads the bytes of a binary PPM file in blocks into a single buffer, so reading takes the
+   * same amount of memory, and holds no mapping of the file, whatever the size of the file.
+   */
+  private static final class BinaryReader {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private BinaryReader(FileChannel channel) {
+      this.channel = channel;
+      buffer.flip();
+    }
+
+    /**
+     * Makes sure the buffer has bytes left, unless the file has ended.
+     */
+    private boolean fill() throws IOException {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        int read = 0;
+        while (read == 0) {
+          read = channel.read(buffer);
+        }
+        buffer.flip();
+      }
+      return buffer.hasRemaining();
+    }
+
+    /**
+     * Returns the next byte without consuming it, or -1 at the end of the file.
+     */
+    private int peek() throws IOException {
+      return fill() ? buffer.get(buffer.position()) & 0xFF : -1;
+    }
+
+    /**
+     * Consumes the next byte, or returns -1 at the end of the file.
+     */
+    private int next() throws IOException {
+      return fill() ? buffer.get() & 0xFF : -1;
+    }
+
+    private void readFully(byte[] dest) throws IOException {
+      int offset = 0;
+      while (offset < dest.length) {
+        if (!fill()) {
+          throw new IOException("PPM file is shorter than its header says");
+        }
+        int length = Math.min(buffer.remaining(), dest.length - offset);
+        buffer.get(dest, offset, length);
+        offset += length;
+      }
+    }
+  }
+
+  /**
+   * Reads a plain PPM file. Comments may start anywhere on a line and run to its end. Values
+   * outside 0 to the maximum value of the header are clamped, then scaled to 0 to 255 as for
+   * binary files. A file that does not start with P3 is reported but still read.
+   *
+   * @param path      The path of the file.
+   * @param imageName The name to give to the loaded image.
+   * @return The loaded image.
+   * @throws IOException If the file cannot be read or ends before all samples are read.
+   */
+  static ImageContent readPlain(Path path, String imageName) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      PlainTokenizer tokenizer = new PlainTokenizer(in);
+      if (!tokenizer.nextTokenIs("P3")) {
+        System.out.println("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      int width = tokenizer.nextInt();
+      int height = tokenizer.nextInt();
+      int maxValue = tokenizer.nextInt();
+      if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE
+              || maxValue <= 0 || maxValue > 65535) {
+        throw new IOException("Invalid PPM header");
+      }
+
+      int[] scale = sampleScale(maxValue, maxValue + 1);
+      int[] imageRGBData = new int[width * height];
+      for (int i = 0; i < imageRGBData.length; i++) {
+        int red = scale[clamp(tokenizer.nextInt(), maxValue)];
+        int green = scale[clamp(tokenizer.nextInt(), maxValue)];
+        int blue = scale[clamp(tokenizer.nextInt(), maxValue)];
+        imageRGBData[i] = ImageContent.pack(red, green, blue);
+      }
+      return new ImageContent(imageName, width, height, imageRGBData);
+    }
+  }
+
+  private static int clamp(int value, int maxValue) {
+    return Math.min(maxValue, Math.max(0, value));
+  }
+
+  /**
+   * Splits the bytes of a plain PPM file into tokens. The bytes are read in blocks into a single
+   * buffer and numbers are accumulated digit by digit straight from it.
+   */
+  private static final class PlainTokenizer {
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private PlainTokenizer(InputStream in) {
+      this.in = in;
+    }
+
+    /**
+     * Returns the next byte without consuming it, or -1 at the end of the file.
+     */
+    private int peek() throws IOException {
+      if (position == limit) {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffer[position];
+    }
+
+    private void skipSeparators() throws IOException {
+      int next = peek();
+      while (next != -1) {
+        if (next == '#') {
+          while (next != -1 && next != '\n' && next != '\r') {
+            position++;
+            next = peek();
+          }
+        } else if (next == ' ' || next == '\n' || next == '\r' || next == '\t' || next == '\f'
+                || next == 0x0B) {
+          position++;
+          next = peek();
+        } else {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Consumes the next token and checks whether it is the given ASCII text.
+     */
+    private boolean nextTokenIs(String expected) throws IOException {
+      skipSeparators();
+      int length = 0;
+      boolean matches = true;
+      int next = peek();
+      while (next != -1 && next != '#' && next > ' ') {
+        matches &= length < expected.length() && next == expected.charAt(length);
+        length++;
+        position++;
+        next = peek();
+      }
+      return matches && length == expected.length();
+    }
+
+    /**
+     * Consumes the next token as a decimal integer. Values too large for an int saturate.
+     */
+    private int nextInt() throws IOException {
+      skipSeparators();
+      int next = peek();
+      boolean negative = next == '-';
+      if (negative || next == '+') {
+        position++;
+        next = peek();
+      }
+      if (next < '0' || next > '9') {
+        throw new IOException(next == -1 ? "PPM file ends before all of its values"
+                : "Invalid value in PPM file");
+      }
+      long value = 0;
+      while (next >= '0' && next <= '9') {
+        value = Math.min(Integer.MAX_VALUE, value * 10 + (next - '0'));
+        position++;
+        next = peek();
+      }
+      return (int) (negative ? -value : value);
+    }
+  }
+
+  /**
+   * Writes an image as a binary PPM file with a maximum value of 255.
+   *
+   * @param path  The path of the file.
+   * @param image The image to write.
+   * @throws IOException If the file cannot be written.
+   */
+  static void writeBinary(Path path, ImageContent image) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] imageRGBData = image.getPackedRgb();
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.put(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+
+      for (int rgb : imageRGBData) {
+        if (buffer.remaining() < 3) {
+          drain(channel, buffer);
+        }
+        buffer.put((byte) (rgb >> 16));
+        buffer.put((byte) (rgb >> 8));
+        buffer.put((byte) rgb);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  /**
+   * Writes an image as a plain PPM file with a maximum value of 255. Each row of the image is
+   * written on its own line, with every sample followed by a space.
+   *
+   * @param path  The path of the file.
+   * @param image The image to write.
+   * @throws IOException If the file cannot be written.
+   */
+  static void writePlain(Path path, ImageContent image) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] imageRGBData = image.getPackedRgb();
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.put(("P3\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+
+      for (int y = 0; y < height; y++) {
+        int rowOffset = y * width;
+        for (int x = 0; x < width; x++) {
+          // A pixel takes at most three samples of three digits and a space each.
+          if (buffer.remaining() < 12) {
+            drain(channel, buffer);
+          }
+          int rgb = imageRGBData[rowOffset + x];
+          putSample(buffer, (rgb >> 16) & 0xFF);
+          putSample(buffer, (rgb >> 8) & 0xFF);
+          putSample(buffer, rgb & 0xFF);
+        }
+        if (!buffer.hasRemaining()) {
+          drain(channel, buffer);
+        }
+        buffer.put((byte) '\n');
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  /**
+   * Formats a sample between 0 and 255 followed by a space into the buffer.
+   */
+  private static void putSample(ByteBuffer buffer, int value) {
+    if (value >= 100) {
+      buffer.put((byte) ('0' + value / 100));
+    }
+    if (value >= 10) {
+      buffer.put((byte) ('0' + value / 10 % 10));
+    }
+    buffer.put((byte) ('0' + value % 10));
+    buffer.put((byte) ' ');
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,118 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * The `RasterAccess` class copies pixels between packed RGB arrays and `BufferedImage` objects
+ * in bulk. For the common image types the samples are read from and written to the data buffer
+ * of the raster directly, instead of going through the color model for every pixel. Other types
+ * are converted with a single call to `getRGB` for the whole image.
+ */
+final class RasterAccess {
+
+  private RasterAccess() {
+  }
+
+  /**
+   * Reads the pixels of an image as packed RGB values, dropping the alpha channel. The result is
+   * the same as calling `getRGB(x, y)` for every pixel.
+   *
+   * @param image The image to read.
+   * @return The packed RGB values of the image, row by row.
+   */
+  static int[] readRgb(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] rgb = new int[width * height];
+    WritableRaster raster = image.getRaster();
+
+    // Images created by a reader start at the origin of their data buffer, anything else such as
+    // a sub-image goes through the color model.
+    boolean direct = raster.getParent() == null
+            && raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0
+            && raster.getDataBuffer().getOffset() == 0;
+
+    switch (direct ? image.getType() : BufferedImage.TYPE_CUSTOM) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        readInt(raster, width, height, rgb, false);
+        break;
+      case BufferedImage.TYPE_INT_BGR:
+        readInt(raster, width, height, rgb, true);
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+        readByte(raster, width, height, rgb, 0);
+        break;
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        readByte(raster, width, height, rgb, 1);
+        break;
+      default:
+        image.getRGB(0, 0, width, height, rgb, 0, width);
+        for (int i = 0; i < rgb.length; i++) {
+          rgb[i] &= 0xFFFFFF;
+        }
+    }
+    return rgb;
+  }
+
+  /**
+   * Creates an RGB image holding the given packed RGB values.
+   *
+   * @param rgb    The packed RGB values, row by row.
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @return A `BufferedImage` of type `TYPE_INT_RGB` holding the values.
+   */
+  static BufferedImage writeRgb(int[] rgb, int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    for (int i = 0; i < data.length; i++) {
+      data[i] = rgb[i] & 0xFFFFFF;
+    }
+    return image;
+  }
+
+  private static void readInt(WritableRaster raster, int width, int height, int[] rgb,
+                              boolean bgr) {
+    int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+    int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+
+    for (int y = 0; y < height; y++) {
+      int source = y * stride;
+      int target = y * width;
+      if (!bgr) {
+        for (int x = 0; x < width; x++) {
+          rgb[target + x] = data[source + x] & 0xFFFFFF;
+        }
+      } else {
+        for (int x = 0; x < width; x++) {
+          int pixel = data[source + x];
+          rgb[target + x] = (pixel & 0xFF) << 16 | (pixel & 0xFF00) | (pixel >> 16) & 0xFF;
+        }
+      }
+    }
+  }
+
+  private static void readByte(WritableRaster raster, int width, int height, int[] rgb,
+                               int alphaBytes) {
+    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+    int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+    int pixelStride = 3 + alphaBytes;
+
+    for (int y = 0; y < height; y++) {
+      int source = y * stride + alphaBytes;
+      int target = y * width;
+      for (int x = 0; x < width; x++, source += pixelStride) {
+        rgb[target + x] = (data[source + 2] & 0xFF) << 16
+                | (data[source + 1] & 0xFF) << 8
+                | (data[source] & 0xFF);
+      }
+    }
+  }
+}
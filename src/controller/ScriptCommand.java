@@ -0,0 +1,296 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import model.ColorTransform;
+import model.ImageContent;
+import model.ImageModel;
+
+/**
+ * The `ScriptCommand` class is one command of a compiled script. Its arguments have already been
+ * parsed and checked, so executing it only calls the model. Every command knows the script lines
+ * it was compiled from, the images it reads and the images it produces.
+ */
+abstract class ScriptCommand {
+
+  private final int lineNumber;
+  private final List<String> lines;
+  private final List<String> inputs;
+  private final List<String> outputs;
+
+  /**
+   * Constructs a command.
+   *
+   * @param lineNumber The number of the first script line of the command, starting at 1.
+   * @param lines      The script lines the command was compiled from.
+   * @param inputs     The names of the images the command reads.
+   * @param outputs    The names of the images the command produces.
+   */
+  ScriptCommand(int lineNumber, List<String> lines, List<String> inputs, List<String> outputs) {
+    this.lineNumber = lineNumber;
+    this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+    this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+    this.outputs = Collections.unmodifiableList(new ArrayList<>(outputs));
+  }
+
+  /**
+   * Get the number of the first script line of this command.
+   *
+   * @return The line number, starting at 1.
+   */
+  int getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Get the script lines this command was compiled from.
+   *
+   * @return The script lines.
+   */
+  List<String> getLines() {
+    return lines;
+  }
+
+  /**
+   * Get the names of the images this command reads.
+   *
+   * @return The names of the input images.
+   */
+  List<String> getInputs() {
+    return inputs;
+  }
+
+  /**
+   * Get the names of the images this command produces.
+   *
+   * @return The names of the output images.
+   */
+  List<String> getOutputs() {
+    return outputs;
+  }
+
+  /**
+   * Get the paths of the files this command reads.
+   *
+   * @return The paths of the files read, empty for commands that do not read files.
+   */
+  List<String> getFilesRead() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Get the paths of the files this command writes.
+   *
+   * @return The paths of the files written, empty for commands that do not write files.
+   */
+  List<String> getFilesWritten() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Runs this command as part of a script. The command is skipped if one of its input images is
+   * missing, which happens when an image file could not be loaded.
+   *
+   * @param model The model holding the images.
+   * @param io    The operations used to read and write image files.
+   */
+  void run(ImageModel model, IOImageOperations io) {
+    for (String line : lines) {
+      System.out.println("Executing command: " + line);
+    }
+    for (String input : inputs) {
+      if (!model.getImageMap().containsKey(input)) {
+        System.out.println("Source Image not found: " + input);
+        return;
+      }
+    }
+    execute(model, io);
+  }
+
+  /**
+   * Runs this command as part of a script, as {@link #run(ImageModel, IOImageOperations)} does,
+   * then tells the image store that the images it read have one reader less and how many of the
+   * remaining commands read each image it produced.
+   *
+   * @param model       The model holding the images.
+   * @param io          The operations used to read and write image files.
+   * @param outputReads For every image this command produces, the number of later commands that
+   *                    read it.
+   */
+  void run(ImageModel model, IOImageOperations io, Map<String, Integer> outputReads) {
+    try {
+      run(model, io);
+    } finally {
+      model.getImageStore().updateReads(new LinkedHashSet<>(inputs), outputReads);
+    }
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @param model The model holding the images.
+   * @param io    The operations used to read and write image files.
+   */
+  abstract void execute(ImageModel model, IOImageOperations io);
+
+  /**
+   * Loads an image file under a name.
+   */
+  static final class Load extends ScriptCommand {
+
+    private final String path;
+    private final String extension;
+    private final String name;
+
+    Load(int lineNumber, String line, String path, String extension, String name) {
+      super(lineNumber, Collections.singletonList(line), Collections.emptyList(),
+              Collections.singletonList(name));
+      this.path = path;
+      this.extension = extension;
+      this.name = name;
+    }
+
+    @Override
+    List<String> getFilesRead() {
+      return Collections.singletonList(path);
+    }
+
+    @Override
+    void execute(ImageModel model, IOImageOperations io) {
+      ImageContent image = io.loadImage(path, extension, name);
+      if (image != null) {
+        model.loadImageInMap(image);
+      } else {
+        System.out.println("Failed to load the image from: " + name);
+      }
+    }
+  }
+
+  /**
+   * Saves an image to a file.
+   */
+  static final class Save extends ScriptCommand {
+
+    private final String path;
+    private final String extension;
+    private final String name;
+    private final boolean binary;
+
+    Save(int lineNumber, String line, String path, String extension, String name,
+         boolean binary) {
+      super(lineNumber, Collections.singletonList(line), Collections.singletonList(name),
+              Collections.emptyList());
+      this.path = path;
+      this.extension = extension;
+      this.name = name;
+      this.binary = binary;
+    }
+
+    @Override
+    List<String> getFilesWritten() {
+      return Collections.singletonList(path);
+    }
+
+    @Override
+    void execute(ImageModel model, IOImageOperations io) {
+      io.save(path, extension, model.getImage(name), binary);
+    }
+  }
+
+  /**
+   * Runs one operation of the model with arguments that were parsed when the script was
+   * compiled.
+   */
+  static final class Operation extends ScriptCommand {
+
+    private final Consumer<ImageModel> action;
+
+    Operation(int lineNumber, String line, List<String> inputs, List<String> outputs,
+              Consumer<ImageModel> action) {
+      super(lineNumber, Collections.singletonList(line), inputs, outputs);
+      this.action = action;
+    }
+
+    @Override
+    void execute(ImageModel model, IOImageOperations io) {
+      action.accept(model);
+    }
+  }
+
+  /**
+   * Applies a chain of transformations that each work on one pixel at a time, where each step
+   * transforms the image produced by the previous one, in a single pass over the pixels.
+   */
+  static final class ColorTransforms extends ScriptCommand {
+
+    private final String sourceName;
+    private final List<ColorTransform> transforms;
+
+    ColorTransforms(int lineNumber, String line, String sourceName, ColorTransform transform) {
+      this(lineNumber, Collections.singletonList(line), sourceName,
+              Collections.singletonList(transform));
+    }
+
+    private ColorTransforms(int lineNumber, List<String> lines, String sourceName,
+                            List<ColorTransform> transforms) {
+      super(lineNumber, lines, Collections.singletonList(sourceName), destNames(transforms));
+      this.sourceName = sourceName;
+      this.transforms = Collections.unmodifiableList(new ArrayList<>(transforms));
+    }
+
+    private static List<String> destNames(List<ColorTransform> transforms) {
+      List<String> names = new ArrayList<>();
+      for (ColorTransform transform : transforms) {
+        if (transform.getDestName() != null) {
+          names.add(transform.getDestName());
+        }
+      }
+      return names;
+    }
+
+    /**
+     * Get the name of the image produced by the last step of this chain.
+     */
+    String getLastDestName() {
+      return transforms.get(transforms.size() - 1).getDestName();
+    }
+
+    /**
+     * Checks whether the given chain starts from the image produced by the last step of this
+     * chain.
+     */
+    boolean continuesWith(ColorTransforms next) {
+      return next.sourceName.equals(getLastDestName());
+    }
+
+    /**
+     * Returns the chain made of the steps of this chain followed by those of the given one.
+     *
+     * @param next             The chain that transforms the image produced by this one.
+     * @param keepIntermediate Whether the image produced by the last step of this chain is still
+     *                         stored, or only passed on to the next chain.
+     */
+    ColorTransforms append(ColorTransforms next, boolean keepIntermediate) {
+      List<String> lines = new ArrayList<>(getLines());
+      lines.addAll(next.getLines());
+      List<ColorTransform> steps = new ArrayList<>(transforms);
+      if (!keepIntermediate) {
+        ColorTransform last = steps.remove(steps.size() - 1);
+        steps.add(new ColorTransform(last.getOperation(), null, last.getSplitPercentage(),
+                last.getParameters()));
+      }
+      steps.addAll(next.transforms);
+      return new ColorTransforms(getLineNumber(), lines, sourceName, steps);
+    }
+
+    @Override
+    void execute(ImageModel model, IOImageOperations io) {
+      model.applyColorTransforms(sourceName, transforms);
+    }
+  }
+}
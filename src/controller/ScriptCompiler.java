@@ -0,0 +1,374 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import model.ColorTransform;
+import model.ImageModel;
+
+/**
+ * The `ScriptCompiler` class turns the lines of a script into a {@link ScriptPlan}. Every line is
+ * parsed and checked before anything runs: the number and format of the arguments, their ranges,
+ * and that every image a command uses has been loaded or created by an earlier line. A script
+ * with a mistake anywhere is rejected as a whole, with the number of the offending line.
+ *
+ * <p>Every line becomes one command. Commands that transform each pixel on its own, such as
+ * brighten, sepia or levels-adjust, are compiled into single step color transformations, so
+ * that {@link ScriptPlan#fused()} can later run a chain of them in one pass over the pixels.
+ */
+final class ScriptCompiler {
+
+  private static final Pattern FILE_COMMAND = Pattern.compile(
+          "(load|save)\\s+'([^']*)'\\s+(\\S+)(?:\\s+(\\S+))?");
+
+  private static final List<String> FORMATS = Arrays.asList("png", "jpg", "jpeg", "ppm");
+
+  private ScriptCompiler() {
+  }
+
+  /**
+   * Compiles the lines of a script. Empty lines and lines starting with "#" are skipped.
+   *
+   * @param lines       The lines of the script.
+   * @param knownImages The names of the images that already exist before the script runs.
+   * @return The compiled plan.
+   * @throws IllegalArgumentException If a line is not a valid command or uses an image that does
+   *                                  not exist at that point of the script.
+   */
+  static ScriptPlan compile(List<String> lines, Collection<String> knownImages) {
+    Set<String> images = new HashSet<>(knownImages);
+    List<ScriptCommand> commands = new ArrayList<>();
+
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.startsWith("#") || line.isEmpty()) { // Skip comments and empty lines
+        continue;
+      }
+      int lineNumber = i + 1;
+
+      ScriptCommand command;
+      try {
+        command = compileLine(lineNumber, line);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+      }
+      for (String input : command.getInputs()) {
+        if (!images.contains(input)) {
+          throw new IllegalArgumentException("Line " + lineNumber + ": image '" + input
+                  + "' is used before it is loaded or created");
+        }
+      }
+      images.addAll(command.getOutputs());
+      commands.add(command);
+    }
+    return new ScriptPlan(commands);
+  }
+
+  private static ScriptCommand compileLine(int lineNumber, String line) {
+    String[] parts = line.split("\\s+");
+    String source;
+    String dest;
+
+    switch (parts[0]) {
+      case "load":
+      case "save":
+        return compileFileCommand(lineNumber, line);
+
+      case "horizontal-flip":
+        expectLength(parts, 3, "horizontal-flip source-image-name dest-image-name");
+        source = parts[1];
+        dest = parts[2];
+        return operation(lineNumber, line, source, dest,
+            model -> model.horizontalFlipImage(source, dest));
+
+      case "vertical-flip":
+        expectLength(parts, 3, "vertical-flip source-image-name dest-image-name");
+        source = parts[1];
+        dest = parts[2];
+        return operation(lineNumber, line, source, dest,
+            model -> model.verticalFlipImage(source, dest));
+
+      case "sharpen": {
+        int splitPercentage = parseSplit(parts, 3,
+                "sharpen source-image-name dest-image-name [split p]");
+        source = parts[1];
+        dest = parts[2];
+        return operation(lineNumber, line, source, dest,
+            model -> model.sharpenImage(source, dest, splitPercentage));
+      }
+
+      case "blur":
+        return compileBlur(lineNumber, line, parts);
+
+      case "brighten": {
+        expectLength(parts, 4, "brighten increment source-image-name dest-image-name");
+        int increment = parseInt(parts[1], "Brightness increment");
+        return new ScriptCommand.ColorTransforms(lineNumber, line, parts[2],
+                new ColorTransform("brighten", parts[3], 0, increment));
+      }
+
+      case "sepia":
+      case "greyscale":
+      case "luma-component": {
+        int splitPercentage = parseSplit(parts, 3,
+                parts[0] + " source-image-name dest-image-name [split p]");
+        return colorTransform(lineNumber, line, parts, splitPercentage);
+      }
+
+      case "intensity-component":
+      case "value-component":
+      case "red-component":
+      case "green-component":
+      case "blue-component":
+        expectLength(parts, 3, parts[0] + " source-image-name dest-image-name");
+        return colorTransform(lineNumber, line, parts, 0);
+
+      case "rgb-split": {
+        expectLength(parts, 5, "rgb-split image-name dest-image-name-red "
+                + "dest-image-name-green dest-image-name-blue");
+        source = parts[1];
+        String red = parts[2];
+        String green = parts[3];
+        String blue = parts[4];
+        return new ScriptCommand.Operation(lineNumber, line, Arrays.asList(source),
+                Arrays.asList(red, green, blue),
+            model -> model.rgbSplitImage(source, red, green, blue));
+      }
+
+      case "rgb-combine": {
+        expectLength(parts, 5, "rgb-combine combined-image red-image green-image blue-image");
+        dest = parts[1];
+        String red = parts[2];
+        String green = parts[3];
+        String blue = parts[4];
+        return new ScriptCommand.Operation(lineNumber, line, Arrays.asList(red, green, blue),
+                Arrays.asList(dest),
+            model -> model.combineRGBImages(dest, red, green, blue));
+      }
+
+      case "color-correct": {
+        int splitPercentage = parseSplit(parts, 3,
+                "color-correct source-image-name dest-image-name [split p]");
+        source = parts[1];
+        dest = parts[2];
+        return operation(lineNumber, line, source, dest,
+            model -> model.colorCorrectImage(source, dest, splitPercentage));
+      }
+
+      case "histogram":
+        expectLength(parts, 3, "histogram source-image-name dest-image-name");
+        source = parts[1];
+        dest = parts[2];
+        return operation(lineNumber, line, source, dest,
+            model -> model.createHistogram(source, dest));
+
+      case "levels-adjust":
+        return compileLevelsAdjust(lineNumber, line, parts);
+
+      case "compress":
+        return compileCompress(lineNumber, line, parts);
+
+      case "-file":
+        throw new IllegalArgumentException("a script cannot run another script");
+
+      default:
+        throw new IllegalArgumentException("Invalid command: " + parts[0]);
+    }
+  }
+
+  private static ScriptCommand compileFileCommand(int lineNumber, String line) {
+    Matcher matcher = FILE_COMMAND.matcher(line);
+    boolean load = line.startsWith("load");
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("Usage is '" + (load ? "load" : "save")
+              + " 'image-path' image-name'");
+    }
+    String path = matcher.group(2);
+    String name = matcher.group(3);
+    String option = matcher.group(4);
+
+    String extension = Controller.identifyFileFormat(path);
+    if (!FORMATS.contains(extension)) {
+      throw new IllegalArgumentException("Only PNG, JPG, JPEG and PPM images are supported: "
+              + path);
+    }
+
+    if (load) {
+      if (option != null) {
+        throw new IllegalArgumentException("Unexpected argument after the image name: "
+                + option);
+      }
+      return new ScriptCommand.Load(lineNumber, line, path, extension, name);
+    }
+    if (option != null && !option.equals("binary")) {
+      throw new IllegalArgumentException("Only 'binary' may follow the image name: " + option);
+    }
+    return new ScriptCommand.Save(lineNumber, line, path, extension, name, option != null);
+  }
+
+  private static ScriptCommand compileBlur(int lineNumber, String line, String[] parts) {
+    String usage = "blur source-image-name dest-image-name [split p] [radius r] [sigma s]";
+    if (parts.length < 3 || parts.length % 2 == 0) {
+      throw usageError(usage);
+    }
+
+    // Optional "split <p>", "radius <r>" and "sigma <s>" pairs after the image names.
+    int splitPercentage = 0;
+    int radius = 0;
+    double sigma = 0;
+    for (int i = 3; i < parts.length; i += 2) {
+      switch (parts[i]) {
+        case "split":
+          splitPercentage = parsePercentage(parts[i + 1]);
+          break;
+        case "radius":
+          radius = parseInt(parts[i + 1], "Blur radius");
+          break;
+        case "sigma":
+          sigma = parseDouble(parts[i + 1], "Blur sigma");
+          break;
+        default:
+          throw usageError(usage);
+      }
+    }
+    if (radius < 0 || !(sigma >= 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Blur radius and sigma should be positive");
+    }
+
+    String source = parts[1];
+    String dest = parts[2];
+    int split = splitPercentage;
+    if (radius == 0 && sigma == 0) {
+      return operation(lineNumber, line, source, dest,
+          model -> model.blurImage(source, dest, split));
+    }
+    // A Gaussian is negligible beyond three standard deviations.
+    int gaussianRadius = radius == 0 ? Math.max(1, (int) Math.ceil(3 * sigma)) : radius;
+    double gaussianSigma = sigma == 0 ? radius / 3.0 : sigma;
+    return operation(lineNumber, line, source, dest,
+        model -> model.blurImage(source, dest, split, gaussianRadius, gaussianSigma));
+  }
+
+  private static ScriptCommand compileLevelsAdjust(int lineNumber, String line,
+                                                   String[] parts) {
+    String usage = "levels-adjust b m w source-image-name dest-image-name [split p]";
+    if (parts.length != 6 && parts.length != 8) {
+      throw usageError(usage);
+    }
+    int b = parseInt(parts[1], "Shadow point");
+    int m = parseInt(parts[2], "Mid point");
+    int w = parseInt(parts[3], "Highlight point");
+    if (!(b < m && m < w && b >= 0 && b <= 255 && m <= 255 && w <= 255)) {
+      throw new IllegalArgumentException("Invalid shadow, mid, highlight points");
+    }
+    int splitPercentage = parseSplit(parts, 6, usage);
+
+    return new ScriptCommand.ColorTransforms(lineNumber, line, parts[4],
+            new ColorTransform("levels", parts[5], splitPercentage, b, m, w));
+  }
+
+  private static ScriptCommand compileCompress(int lineNumber, String line, String[] parts) {
+    String usage = "compress percentage source-image-name dest-image-name [levels n|full] "
+            + "[float]";
+    if (parts.length < 4) {
+      throw usageError(usage);
+    }
+    double percentage = parseDouble(parts[1], "Compression percentage");
+    if (!(percentage >= 0 && percentage <= 100)) {
+      throw new IllegalArgumentException("Compression percentage should be between 0 and 100");
+    }
+
+    // Optional "levels <n>" (or "levels full") and "float" after the image names.
+    int levels = 1;
+    boolean floatPrecision = false;
+    for (int i = 4; i < parts.length; i++) {
+      if (parts[i].equals("levels") && i + 1 < parts.length) {
+        i++;
+        levels = parts[i].equals("full") ? Integer.MAX_VALUE
+                : parseInt(parts[i], "Compression levels");
+      } else if (parts[i].equals("float")) {
+        floatPrecision = true;
+      } else {
+        throw usageError(usage);
+      }
+    }
+    if (levels < 1) {
+      throw new IllegalArgumentException("Compression levels should be at least 1");
+    }
+
+    String source = parts[2];
+    String dest = parts[3];
+    int pyramidLevels = levels;
+    boolean singlePrecision = floatPrecision;
+    return operation(lineNumber, line, source, dest,
+        model -> model.compress(source, dest, percentage, pyramidLevels, singlePrecision));
+  }
+
+  private static ScriptCommand colorTransform(int lineNumber, String line, String[] parts,
+                                              int splitPercentage) {
+    String operation = parts[0].endsWith("-component")
+            ? parts[0].substring(0, parts[0].indexOf('-')) : parts[0];
+    return new ScriptCommand.ColorTransforms(lineNumber, line, parts[1],
+            new ColorTransform(operation, parts[2], splitPercentage));
+  }
+
+  private static ScriptCommand operation(int lineNumber, String line, String source,
+                                         String dest, Consumer<ImageModel> action) {
+    return new ScriptCommand.Operation(lineNumber, line, Arrays.asList(source),
+            Arrays.asList(dest), action);
+  }
+
+  /**
+   * Parses an optional "split p" at the given position, which must end the command.
+   */
+  private static int parseSplit(String[] parts, int position, String usage) {
+    if (parts.length == position) {
+      return 0;
+    }
+    if (parts.length == position + 2 && parts[position].equals("split")) {
+      return parsePercentage(parts[position + 1]);
+    }
+    throw usageError(usage);
+  }
+
+  private static int parsePercentage(String token) {
+    int percentage = parseInt(token, "Split percentage");
+    if (percentage < 0 || percentage > 100) {
+      throw new IllegalArgumentException("Split percentage should be between 0 and 100");
+    }
+    return percentage;
+  }
+
+  private static int parseInt(String token, String description) {
+    try {
+      return Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(description + " should be a whole number: " + token);
+    }
+  }
+
+  private static double parseDouble(String token, String description) {
+    try {
+      return Double.parseDouble(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(description + " should be a number: " + token);
+    }
+  }
+
+  private static void expectLength(String[] parts, int length, String usage) {
+    if (parts.length != length) {
+      throw usageError(usage);
+    }
+  }
+
+  private static IllegalArgumentException usageError(String usage) {
+    return new IllegalArgumentException("Usage is '" + usage + "'");
+  }
+}
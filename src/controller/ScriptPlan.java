@@ -0,0 +1,206 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+
+/**
+ * The `ScriptPlan` class is a compiled script: the list of commands to run, in script order.
+ * Plans are created by {@link ScriptCompiler}, which has already checked every argument and that
+ * every image is created before it is used.
+ */
+final class ScriptPlan {
+
+  private final List<ScriptCommand> commands;
+
+  /**
+   * Constructs a plan running the given commands in order.
+   *
+   * @param commands The commands of the plan.
+   */
+  ScriptPlan(List<ScriptCommand> commands) {
+    this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+  }
+
+  /**
+   * Get the commands of this plan.
+   *
+   * @return The commands, in script order.
+   */
+  List<ScriptCommand> getCommands() {
+    return commands;
+  }
+
+  /**
+   * Get the plan for a lazy run of this script: only the commands whose images are eventually
+   * saved, directly or through the images computed from them, are kept.
+   *
+   * @return The plan made of the needed commands, in script order.
+   */
+  ScriptPlan lazy() {
+    return new ScriptPlan(partition(true));
+  }
+
+  /**
+   * Get the commands that a lazy run of this script skips, because no saved image depends on
+   * them.
+   *
+   * @return The unneeded commands, in script order.
+   */
+  List<ScriptCommand> unneededCommands() {
+    return partition(false);
+  }
+
+  /**
+   * Walks the script backwards from its saves and returns the needed or the unneeded commands.
+   */
+  private List<ScriptCommand> partition(boolean needed) {
+    // The images whose current value is read by a needed command further down the script.
+    Set<String> wanted = new HashSet<>();
+    boolean[] isNeeded = new boolean[commands.size()];
+
+    for (int i = commands.size() - 1; i >= 0; i--) {
+      ScriptCommand command = commands.get(i);
+      boolean produces = false;
+      for (String output : command.getOutputs()) {
+        produces |= wanted.contains(output);
+      }
+      if (produces || !command.getFilesWritten().isEmpty()) {
+        isNeeded[i] = true;
+        wanted.removeAll(command.getOutputs());
+        wanted.addAll(command.getInputs());
+      }
+    }
+
+    List<ScriptCommand> result = new ArrayList<>();
+    for (int i = 0; i < commands.size(); i++) {
+      if (isNeeded[i] == needed) {
+        result.add(commands.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the plan where chains of commands that transform each pixel on its own are fused, so
+   * that each chain reads and writes the pixels once. A command joins a chain when it
+   * transforms the image produced by the command just before it. An image produced inside a
+   * chain is only stored if a later command still reads it; otherwise it goes straight from one
+   * step to the next. The saved images are the same as without fusion.
+   *
+   * @return The fused plan.
+   */
+  ScriptPlan fused() {
+    List<ScriptCommand> result = new ArrayList<>();
+    for (int i = 0; i < commands.size(); i++) {
+      ScriptCommand command = commands.get(i);
+      ScriptCommand last = result.isEmpty() ? null : result.get(result.size() - 1);
+
+      if (command instanceof ScriptCommand.ColorTransforms
+              && last instanceof ScriptCommand.ColorTransforms
+              && ((ScriptCommand.ColorTransforms) last)
+              .continuesWith((ScriptCommand.ColorTransforms) command)) {
+        ScriptCommand.ColorTransforms chain = (ScriptCommand.ColorTransforms) last;
+        boolean keep = isReadLater(chain.getLastDestName(), i);
+        result.set(result.size() - 1,
+                chain.append((ScriptCommand.ColorTransforms) command, keep));
+      } else {
+        result.add(command);
+      }
+    }
+    return new ScriptPlan(result);
+  }
+
+  /**
+   * Checks whether an image read by the given command is read again by a later command before
+   * it is replaced.
+   */
+  private boolean isReadLater(String name, int reader) {
+    if (commands.get(reader).getOutputs().contains(name)) {
+      return false;
+    }
+    for (int i = reader + 1; i < commands.size(); i++) {
+      if (commands.get(i).getInputs().contains(name)) {
+        return true;
+      }
+      if (commands.get(i).getOutputs().contains(name)) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Counts, for every command and every image it produces, the later commands that read that
+   * image before another command produces an image with the same name. The image store uses
+   * these counts to know when an image is no longer needed.
+   *
+   * @return For every command, in script order, the number of readers of each of its outputs.
+   */
+  List<Map<String, Integer>> outputReads() {
+    List<Map<String, Integer>> reads = new ArrayList<>(Collections.nCopies(commands.size(),
+            null));
+    // The number of commands further down that read the current value of each image.
+    Map<String, Integer> readsAhead = new HashMap<>();
+
+    for (int i = commands.size() - 1; i >= 0; i--) {
+      ScriptCommand command = commands.get(i);
+      Map<String, Integer> outputs = new LinkedHashMap<>();
+      for (String output : command.getOutputs()) {
+        outputs.put(output, readsAhead.getOrDefault(output, 0));
+      }
+      for (String output : command.getOutputs()) {
+        readsAhead.remove(output);
+      }
+      for (String input : new LinkedHashSet<>(command.getInputs())) {
+        readsAhead.merge(input, 1, Integer::sum);
+      }
+      reads.set(i, outputs);
+    }
+    return reads;
+  }
+
+  /**
+   * Get the images this plan reads before producing them, which must already be in the model
+   * when it runs.
+   *
+   * @return The names of the images the plan reads but does not create first.
+   */
+  Set<String> externalInputs() {
+    Set<String> produced = new HashSet<>();
+    Set<String> external = new LinkedHashSet<>();
+    for (ScriptCommand command : commands) {
+      for (String input : command.getInputs()) {
+        if (!produced.contains(input)) {
+          external.add(input);
+        }
+      }
+      produced.addAll(command.getOutputs());
+    }
+    return external;
+  }
+
+  /**
+   * Executes the commands of this plan one after the other, in script order. A command is
+   * skipped if one of its input images is missing, which happens when an image file could not
+   * be loaded. The images that no later command reads are left for the image store to evict.
+   *
+   * @param model The model holding the images.
+   * @param io    The operations used to read and write image files.
+   */
+  void execute(ImageModel model, IOImageOperations io) {
+    List<Map<String, Integer>> reads = outputReads();
+    model.getImageStore().pin(externalInputs());
+    for (int i = 0; i < commands.size(); i++) {
+      commands.get(i).run(model, io, reads.get(i));
+    }
+  }
+}
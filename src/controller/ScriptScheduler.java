@@ -0,0 +1,270 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import model.ImageModel;
+
+/**
+ * The `ScriptScheduler` class runs the commands of a {@link ScriptPlan} concurrently, as a graph
+ * of dependencies between them. A command waits for the earlier commands that:
+ * <ul>
+ *   <li>produce an image it reads,</li>
+ *   <li>produce an image it also produces, so the last one in the script wins,</li>
+ *   <li>read an image it overwrites, as in {@code brighten 10 a a}.</li>
+ * </ul>
+ * The same rules apply to the files that are loaded and saved. Commands with no such relation
+ * run in parallel, and every image and file ends up exactly as if the script ran in order. As
+ * with {@link ScriptPlan#execute}, the image store is told when an image is no longer read.
+ *
+ * <p>What each command prints is held back and passed on to the console in script order, so
+ * the messages of a command always follow its "Executing command" line, as in a sequential run.
+ */
+final class ScriptScheduler {
+
+  private final Executor executor;
+
+  /**
+   * Constructs a scheduler running commands on the given executor.
+   *
+   * @param executor The executor on which the commands run.
+   */
+  ScriptScheduler(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Executes the commands of a plan, each as soon as the commands it depends on are done, and
+   * waits for all of them. If a command fails, the commands that depend on it are not run, and
+   * the failure of the first such command in the script is thrown once the others are done.
+   *
+   * @param plan  The plan to execute.
+   * @param model The model holding the images.
+   * @param io    The operations used to read and write image files.
+   */
+  void execute(ScriptPlan plan, ImageModel model, IOImageOperations io) {
+    List<ScriptCommand> commands = plan.getCommands();
+    List<List<Integer>> dependencies = dependencies(commands);
+    List<Map<String, Integer>> reads = plan.outputReads();
+    model.getImageStore().pin(plan.externalInputs());
+
+    PrintStream console = System.out;
+    OrderedOutput output = new OrderedOutput(console, commands.size());
+    System.setOut(new PrintStream(output, true));
+    try {
+      run(commands, dependencies, reads, model, io, output);
+    } finally {
+      output.finish();
+      System.setOut(console);
+    }
+  }
+
+  private void run(List<ScriptCommand> commands, List<List<Integer>> dependencies,
+                   List<Map<String, Integer>> reads, ImageModel model, IOImageOperations io,
+                   OrderedOutput output) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < commands.size(); i++) {
+      List<Integer> before = dependencies.get(i);
+      CompletableFuture<?>[] waitFor = new CompletableFuture<?>[before.size()];
+      for (int j = 0; j < waitFor.length; j++) {
+        waitFor[j] = tasks.get(before.get(j));
+      }
+      int index = i;
+      ScriptCommand command = commands.get(i);
+      Map<String, Integer> outputReads = reads.get(i);
+      tasks.add(CompletableFuture.allOf(waitFor).thenRunAsync(
+          () -> output.capture(index, () -> command.run(model, io, outputReads)), executor));
+    }
+
+    // Wait for every command, then report the first failure in script order.
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+            .exceptionally(e -> null).join();
+    for (CompletableFuture<Void> task : tasks) {
+      try {
+        task.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Finds, for every command, the earlier commands it has to wait for.
+   *
+   * @param commands The commands, in script order.
+   * @return For every command, the ascending indices of the commands it depends on.
+   */
+  static List<List<Integer>> dependencies(List<ScriptCommand> commands) {
+    Hazards images = new Hazards();
+    Hazards files = new Hazards();
+    List<List<Integer>> dependencies = new ArrayList<>();
+
+    for (int i = 0; i < commands.size(); i++) {
+      ScriptCommand command = commands.get(i);
+      TreeSet<Integer> before = new TreeSet<>();
+      for (String name : command.getInputs()) {
+        images.read(name, i, before);
+      }
+      for (String path : command.getFilesRead()) {
+        files.read(normalize(path), i, before);
+      }
+      for (String name : command.getOutputs()) {
+        images.write(name, i, before);
+      }
+      for (String path : command.getFilesWritten()) {
+        files.write(normalize(path), i, before);
+      }
+      dependencies.add(new ArrayList<>(before));
+    }
+    return dependencies;
+  }
+
+  /**
+   * Gives the same key to different spellings of the path of one file.
+   */
+  private static String normalize(String path) {
+    try {
+      return Paths.get(path).toAbsolutePath().normalize().toString();
+    } catch (InvalidPathException e) {
+      return path;
+    }
+  }
+
+  /**
+   * Collects what each command prints into a buffer of its own, and writes the buffers to the
+   * console in script order as soon as the commands before them are done. Output of threads
+   * that are not running a command goes to the console directly.
+   */
+  private static final class OrderedOutput extends OutputStream {
+
+    private final PrintStream console;
+    private final ByteArrayOutputStream[] buffers;
+    private final ThreadLocal<ByteArrayOutputStream> current = new ThreadLocal<>();
+    private int next;
+
+    OrderedOutput(PrintStream console, int commands) {
+      this.console = console;
+      this.buffers = new ByteArrayOutputStream[commands];
+    }
+
+    /**
+     * Runs a command, collecting what it prints on this thread.
+     */
+    void capture(int index, Runnable command) {
+      // A pool thread waiting for a task may run another command in the meantime.
+      ByteArrayOutputStream outer = current.get();
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      current.set(buffer);
+      try {
+        command.run();
+      } finally {
+        current.set(outer);
+        done(index, buffer);
+      }
+    }
+
+    private synchronized void done(int index, ByteArrayOutputStream buffer) {
+      buffers[index] = buffer;
+      while (next < buffers.length && buffers[next] != null) {
+        console.write(buffers[next].toByteArray(), 0, buffers[next].size());
+        buffers[next++] = null;
+      }
+      console.flush();
+    }
+
+    /**
+     * Writes the output of the commands that ran after one that failed.
+     */
+    synchronized void finish() {
+      for (; next < buffers.length; next++) {
+        if (buffers[next] != null) {
+          console.write(buffers[next].toByteArray(), 0, buffers[next].size());
+          buffers[next] = null;
+        }
+      }
+      console.flush();
+    }
+
+    @Override
+    public void write(int b) {
+      ByteArrayOutputStream buffer = current.get();
+      if (buffer != null) {
+        buffer.write(b);
+      } else {
+        synchronized (this) {
+          console.write(b);
+        }
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ByteArrayOutputStream buffer = current.get();
+      if (buffer != null) {
+        buffer.write(b, off, len);
+      } else {
+        synchronized (this) {
+          console.write(b, off, len);
+        }
+      }
+    }
+
+    @Override
+    public void flush() {
+      if (current.get() == null) {
+        console.flush();
+      }
+    }
+  }
+
+  /**
+   * Tracks, for every image name or file path, the last command that wrote it and the commands
+   * that read it since.
+   */
+  private static final class Hazards {
+
+    private final Map<String, Integer> lastWriter = new HashMap<>();
+    private final Map<String, List<Integer>> readers = new HashMap<>();
+
+    void read(String key, int command, TreeSet<Integer> before) {
+      Integer writer = lastWriter.get(key);
+      if (writer != null) {
+        before.add(writer);
+      }
+      readers.computeIfAbsent(key, k -> new ArrayList<>()).add(command);
+    }
+
+    void write(String key, int command, TreeSet<Integer> before) {
+      Integer writer = lastWriter.get(key);
+      if (writer != null && writer != command) {
+        before.add(writer);
+      }
+      List<Integer> previousReaders = readers.remove(key);
+      if (previousReaders != null) {
+        for (int reader : previousReaders) {
+          if (reader != command) {
+            before.add(reader);
+          }
+        }
+      }
+      lastWriter.put(key, command);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The `Cancellation` class lets the long operations of a model be abandoned part way. The
+ * condition set by {@link ImageModel#runCancellable} holds for the thread running the
+ * operations. Convolutions and compressions capture it on that thread and check it between
+ * bands of rows and ranges of values, on whichever thread of the pool they run, and stop with a
+ * `CancellationException` once it holds, before their result is stored.
+ */
+final class Cancellation {
+
+  private static final BooleanSupplier NEVER = () -> false;
+  private static final ThreadLocal<BooleanSupplier> CONDITION =
+          ThreadLocal.withInitial(() -> NEVER);
+
+  private Cancellation() {
+  }
+
+  /**
+   * Get the condition under which the operations run by the current thread are abandoned.
+   *
+   * @return The condition, which never holds outside of {@link #run}.
+   */
+  static BooleanSupplier current() {
+    return CONDITION.get();
+  }
+
+  /**
+   * Runs operations that are abandoned once the given condition holds.
+   *
+   * @param cancelled  The condition under which the operations are abandoned.
+   * @param operations The operations to run.
+   */
+  static void run(BooleanSupplier cancelled, Runnable operations) {
+    BooleanSupplier outer = CONDITION.get();
+    CONDITION.set(cancelled);
+    try {
+      operations.run();
+    } finally {
+      CONDITION.set(outer);
+    }
+  }
+
+  /**
+   * Stops the current operation if the given condition holds.
+   *
+   * @param cancelled The condition captured when the operation started.
+   * @throws CancellationException If the condition holds.
+   */
+  static void check(BooleanSupplier cancelled) {
+    if (cancelled.getAsBoolean()) {
+      throw new CancellationException("Operation cancelled");
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package model;
+
+/**
+ * The `ColorMatrix` class represents a linear color transformation. Each channel of the result
+ * is a weighted sum of the red, green and blue values of the source pixel, divided by a common
+ * divisor, truncated to an integer and clamped to the range 0 to 255.
+ */
+final class ColorMatrix implements PixelOperation {
+
+  private final double[] coefficients;
+  private final double divisor;
+
+  /**
+   * Constructs a `ColorMatrix` from its rows.
+   *
+   * @param coefficients The nine weights in row-major order. Row 0 produces red, row 1 green and
+   *                     row 2 blue.
+   * @param divisor      The value every weighted sum is divided by before it is truncated.
+   */
+  ColorMatrix(double[] coefficients, double divisor) {
+    if (coefficients.length != 9) {
+      throw new IllegalArgumentException("A color matrix must have 9 coefficients");
+    }
+    this.coefficients = coefficients.clone();
+    this.divisor = divisor;
+  }
+
+  @Override
+  public int applyToPixel(int rgb) {
+    int r = (rgb >> 16) & 0xFF;
+    int g = (rgb >> 8) & 0xFF;
+    int b = rgb & 0xFF;
+    return ImageContent.pack(row(0, r, g, b), row(3, r, g, b), row(6, r, g, b));
+  }
+
+  private int row(int offset, int r, int g, int b) {
+    int value = (int) ((coefficients[offset] * r + coefficients[offset + 1] * g
+            + coefficients[offset + 2] * b) / divisor);
+    return Math.min(255, Math.max(0, value));
+  }
+
+  /**
+   * Creates the sepia tone transformation.
+   *
+   * @return The sepia matrix.
+   */
+  static ColorMatrix sepia() {
+    return new ColorMatrix(new double[]{
+      0.393, 0.769, 0.189,
+      0.349, 0.686, 0.168,
+      0.272, 0.534, 0.131
+    }, 1);
+  }
+
+  /**
+   * Creates the transformation that sets every channel to the luma of the pixel, which is also
+   * used to convert an image to greyscale.
+   *
+   * @return The luma matrix.
+   */
+  static ColorMatrix luma() {
+    return new ColorMatrix(new double[]{
+      0.2126, 0.7152, 0.0722,
+      0.2126, 0.7152, 0.0722,
+      0.2126, 0.7152, 0.0722
+    }, 1);
+  }
+
+  /**
+   * Creates the transformation that sets every channel to the average of the three channels,
+   * rounded down.
+   *
+   * @return The intensity matrix.
+   */
+  static ColorMatrix intensity() {
+    return new ColorMatrix(new double[]{
+      1, 1, 1,
+      1, 1, 1,
+      1, 1, 1
+    }, 3);
+  }
+}
@@ -0,0 +1,84 @@
+package model;
+
+/**
+ * The `ColorTransform` class describes one step of a chain of color transformations: the
+ * operation to apply, the name of the image it produces, the split percentage it uses and the
+ * parameters of the operation. The supported operations are "sepia", "greyscale", "luma",
+ * "intensity" and "value", which take no parameters, "red", "green" and "blue", which extract a
+ * channel, "brighten", which takes the increment, and "levels", which takes the shadow, mid and
+ * highlight points.
+ */
+public final class ColorTransform {
+
+  private final String operation;
+  private final String destName;
+  private final int splitPercentage;
+  private final int[] parameters;
+
+  /**
+   * Constructs a `ColorTransform` step.
+   *
+   * @param operation       The name of the operation.
+   * @param destName        The name of the image produced by this step.
+   * @param splitPercentage The percentage of the image to transform, or 0 for the whole image.
+   */
+  public ColorTransform(String operation, String destName, int splitPercentage) {
+    this(operation, destName, splitPercentage, new int[0]);
+  }
+
+  /**
+   * Constructs a `ColorTransform` step for an operation that takes parameters. A step with no
+   * destination name is fused into the chain: its result is only passed on to the next step and
+   * is never stored as an image.
+   *
+   * @param operation       The name of the operation.
+   * @param destName        The name of the image produced by this step, or null if it is not
+   *                        stored.
+   * @param splitPercentage The percentage of the image to transform, or 0 for the whole image.
+   * @param parameters      The parameters of the operation.
+   */
+  public ColorTransform(String operation, String destName, int splitPercentage,
+                        int... parameters) {
+    this.operation = operation;
+    this.destName = destName;
+    this.splitPercentage = splitPercentage;
+    this.parameters = parameters.clone();
+  }
+
+  /**
+   * Get the name of the operation.
+   *
+   * @return The name of the operation.
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * Get the name of the image produced by this step.
+   *
+   * @return The name of the destination image, or null if the result of this step is not
+   *         stored.
+   */
+  public String getDestName() {
+    return destName;
+  }
+
+  /**
+   * Get the split percentage of this step.
+   *
+   * @return The percentage of the image to transform, or 0 for the whole image.
+   */
+  public int getSplitPercentage() {
+    return splitPercentage;
+  }
+
+  /**
+   * Get the parameters of the operation.
+   *
+   * @return A copy of the parameters, empty for operations that take none.
+   */
+  public int[] getParameters() {
+    return parameters.clone();
+  }
+}
@@ -1,302 +1,877 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
 
 
 /**
  * The `Compression` class provides methods for compressing images using Haar Wavelet Transform
  * and thresholding techniques.
+ *
+ * <p>The three color channels are processed in parallel, and so are the rows and row pairs
+ * within each pass over a channel. Every value is computed by exactly the same arithmetic as a
+ * sequential pass would use, so the result does not depend on the pool or on how the work is
+ * split.
+ *
+ * <p>By default a single level of the transform is applied in double precision. More levels can
+ * be requested, in which case each level transforms the averages of the level before it, and the
+ * coefficients can be kept in single precision to halve the memory used by large images.
  */
 class Compression {
 
-  private double[][] rPadded;
-  private double[][] gPadded;
-  private double[][] bPadded;
+  private static final double SQRT_2 = Math.sqrt(2);
+  private static final float FLOAT_SQRT_2 = (float) Math.sqrt(2);
 
-  private double[][] transformedR;
-  private double[][] transformedG;
-  private double[][] transformedB;
+  /**
+   * The number of channel values below which a range of rows is processed on the current thread
+   * instead of being split further.
+   */
+  private static final int GRAIN_VALUES = 1 << 14;
 
+  private final ForkJoinPool pool;
+  private final int levels;
+  private final boolean floatPrecision;
 
-  private void initializeArrays(int height, int width) {
-    rPadded = new double[height][width];
-    gPadded = new double[height][width];
-    bPadded = new double[height][width];
+  /**
+   * The red, green and blue channels. They hold the padded pixels, then the wavelet coefficients
+   * and finally the reconstructed pixels, as the transforms work in place.
+   */
+  private Plane[] channels;
 
-    transformedR = new double[height][width];
-    transformedG = new double[height][width];
-    transformedB = new double[height][width];
+  /**
+   * Constructs a `Compression` that runs a single level in double precision on the common pool.
+   */
+  Compression() {
+    this(ForkJoinPool.commonPool());
   }
 
-  private void initialPadding(int[][][] imageRGBData, double compressionPercentage) {
-    int height = imageRGBData.length;
-    int width = imageRGBData[0].length;
-    initializeArrays(height, width);
-
-    double[][] r = new double[height][width];
-    double[][] g = new double[height][width];
-    double[][] b = new double[height][width];
+  /**
+   * Constructs a `Compression` that runs a single level in double precision on the given pool.
+   *
+   * @param pool The pool on which the channels and rows are processed.
+   */
+  Compression(ForkJoinPool pool) {
+    this(pool, 1, false);
+  }
 
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        r[y][x] = imageRGBData[y][x][0];
-        g[y][x] = imageRGBData[y][x][1];
-        b[y][x] = imageRGBData[y][x][2];
-      }
+  /**
+   * Constructs a `Compression` with the given number of levels and precision.
+   *
+   * @param pool           The pool on which the channels and rows are processed.
+   * @param levels         The number of levels of the transform, at least 1. Levels beyond
+   *                       what the image size allows are ignored, so `Integer.MAX_VALUE` gives
+   *                       the full pyramid.
+   * @param floatPrecision Whether to keep the coefficients in single instead of double precision.
+   */
+  Compression(ForkJoinPool pool, int levels, boolean floatPrecision) {
+    if (levels < 1) {
+      throw new IllegalArgumentException("Compression needs at least one level");
     }
+    this.pool = pool;
+    this.levels = levels;
+    this.floatPrecision = floatPrecision;
+  }
+
 
+  private void initialPadding(ImageContent image, double compressionPercentage) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[] imageRGBData = image.getPackedRgb();
 
     // Check if compressionPercentage is non-zero before padding
+    int paddedRows = height;
+    int paddedCols = width;
     if (compressionPercentage > 0) {
-      rPadded = padImage(r);
-      gPadded = padImage(g);
-      bPadded = padImage(b);
-    } else {
-      rPadded = r;
-      gPadded = g;
-      bPadded = b;
+      int size = paddedSize(height, width);
+      paddedRows = size;
+      paddedCols = size;
     }
 
+    // The channels are copied straight into their padded arrays, which the transforms then
+    // work on in place.
+    channels = new Plane[3];
+    for (int channel = 0; channel < 3; channel++) {
+      channels[channel] = floatPrecision ? new FloatPlane(paddedRows, paddedCols)
+              : new DoublePlane(paddedRows, paddedCols);
+    }
 
-    transformedR = new double[rPadded.length][rPadded[0].length];
-    transformedG = new double[gPadded.length][gPadded[0].length];
-    transformedB = new double[bPadded.length][bPadded[0].length];
+    forEachRange(height, width, (start, end) -> {
+      for (int channel = 0; channel < 3; channel++) {
+        channels[channel].load(imageRGBData, width, 16 - 8 * channel, start, end);
+      }
+    });
   }
 
-  private double[][] padImage(double[][] imageArr) {
-    int rows = imageArr.length;
-    int cols = imageArr[0].length;
+  private int paddedSize(int rows, int cols) {
     int maxLen = Math.max(rows, cols);
     int newSize = 1;
     while (newSize < maxLen) {
       newSize <<= 1;
     }
-    int newRows = newSize;
-    int newCols = newSize;
-    double[][] paddedImage = new double[newRows][newCols];
+    return newSize;
+  }
 
-    if (newRows == rows && newCols == cols) {
-      paddedImage = new double[imageArr.length][imageArr[0].length];
-    }
 
-    for (int i = 0; i < rows; i++) {
-      System.arraycopy(imageArr[i], 0, paddedImage[i], 0, cols);
-    }
+  private void applyCompression(double compressionPercentage) {
+    forEachChannel(channel -> applyHaarWaveletTransform(channels[channel]));
+    double threshold = calculateThreshold(compressionPercentage);
+    forEachChannel(channel -> {
+      applyThresholdToChannel(channels[channel], threshold);
+      inverseHaarWaveletTransform(channels[channel]);
+    });
+  }
 
-    return paddedImage;
+  /**
+   * Returns the number of rows and columns of the block transformed at each level. The first
+   * level transforms the whole channel and every further level transforms the averages of the
+   * level before it, for as long as they span at least two rows and two columns.
+   */
+  private List<int[]> levelSizes(int rows, int cols) {
+    List<int[]> sizes = new ArrayList<>();
+    sizes.add(new int[]{rows, cols});
+    for (int level = 1; level < levels; level++) {
+      rows /= 2;
+      cols /= 2;
+      if (rows < 2 || cols < 2) {
+        break;
+      }
+      sizes.add(new int[]{rows, cols});
+    }
+    return sizes;
   }
 
 
-  private void applyCompression(double compressionPercentage, int[][][] sourceImage) {
-    transformColorChannels();
-    double threshold = calculateThreshold(compressionPercentage);
-    applyThreshold(threshold);
-    inverseTransformColorChannels(sourceImage.length, sourceImage[0].length);
+  private void applyThresholdToChannel(Plane channel, double threshold) {
+    forEachRange(channel.rows(), channel.cols(),
+        (start, end) -> channel.threshold(start, end, threshold));
   }
 
+  private double calculateThreshold(double compressionPercentage) {
+    // Every channel sorts its own coefficients and drops its duplicates in parallel, and the
+    // three sorted sets are then merged into the distinct values of the whole image.
+    double[][] distinct = new double[3][];
+    forEachChannel(channel -> distinct[channel] = channels[channel].distinctAbsoluteValues());
+    double[] values = mergeDistinct(distinct);
 
-  private void transformColorChannels() {
-    transformedR = applyHaarWaveletTransform(rPadded);
-    transformedG = applyHaarWaveletTransform(gPadded);
-    transformedB = applyHaarWaveletTransform(bPadded);
+    int totalCount = values.length;
+    int cutOffIndex = Math.min(Math.round((float) (compressionPercentage * totalCount) / 100),
+            totalCount - 1);
+
+    double threshold = values[cutOffIndex];
+    return threshold;
   }
 
-  private void inverseTransformColorChannels(int originalRows, int originalCols) {
-    transformedR = inverseHaarWaveletTransform(transformedR, originalRows, originalCols);
-    transformedG = inverseHaarWaveletTransform(transformedG, originalRows, originalCols);
-    transformedB = inverseHaarWaveletTransform(transformedB, originalRows, originalCols);
+  /**
+   * Merges sorted arrays of distinct values into one sorted array of distinct values.
+   */
+  private static double[] mergeDistinct(double[][] sortedSets) {
+    int total = 0;
+    for (double[] set : sortedSets) {
+      total += set.length;
+    }
+    double[] merged = new double[total];
+    int[] positions = new int[sortedSets.length];
+    int count = 0;
+    while (true) {
+      int smallest = -1;
+      for (int set = 0; set < sortedSets.length; set++) {
+        if (positions[set] < sortedSets[set].length && (smallest < 0
+                || sortedSets[set][positions[set]] < sortedSets[smallest][positions[smallest]])) {
+          smallest = set;
+        }
+      }
+      if (smallest < 0) {
+        return Arrays.copyOf(merged, count);
+      }
+      double value = sortedSets[smallest][positions[smallest]++];
+      if (count == 0 || merged[count - 1] != value) {
+        merged[count++] = value;
+      }
+    }
   }
 
+  private void applyHaarWaveletTransform(Plane plane) {
+    for (int[] size : levelSizes(plane.rows(), plane.cols())) {
+      int rows = size[0];
+      int cols = size[1];
+      forEachRange(rows, cols, (start, end) -> plane.transformRows(start, end, cols));
+      transformColumns(plane, rows, cols);
+    }
+  }
 
-  private void applyThreshold(double threshold) {
-    applyThresholdToChannel(transformedR, threshold);
-    applyThresholdToChannel(transformedG, threshold);
-    applyThresholdToChannel(transformedB, threshold);
+  /**
+   * Transforms the columns of the top left block of a channel in place. When the block spans
+   * whole rows, each pair of rows is combined element by element into an average row and a
+   * difference row, which keeps every access along a row, and the rows are then moved to their
+   * transformed positions by reordering the row references. Narrower blocks, which only occur
+   * from the second level on, are transformed one column at a time.
+   */
+  private void transformColumns(Plane plane, int rows, int cols) {
+    if (cols < plane.cols()) {
+      forEachRange(cols, rows, (start, end) -> plane.transformColumns(start, end, rows));
+      return;
+    }
+
+    int mid = rows / 2;
+    forEachRange(mid, 2 * cols, (start, end) -> plane.transformRowPairs(start, end, cols));
+
+    Object[] rowArray = plane.rowArray();
+    Object[] reordered = new Object[rows];
+    for (int i = 0; i < mid; i++) {
+      reordered[i] = rowArray[2 * i];
+      reordered[mid + i] = rowArray[2 * i + 1];
+    }
+    if (rows % 2 != 0) {
+      // The last row of an odd number of rows has no partner and is dropped.
+      plane.clearRow(rows - 1);
+      reordered[rows - 1] = rowArray[rows - 1];
+    }
+    System.arraycopy(reordered, 0, rowArray, 0, rows);
   }
 
-  private void applyThresholdToChannel(double[][] channel, double threshold) {
-    int width = channel.length;
-    int height = channel[0].length;
+  private void inverseHaarWaveletTransform(Plane plane) {
+    List<int[]> sizes = levelSizes(plane.rows(), plane.cols());
+    for (int level = sizes.size() - 1; level >= 0; level--) {
+      int rows = sizes.get(level)[0];
+      int cols = sizes.get(level)[1];
 
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        if (Math.abs(channel[x][y]) <= threshold) {
-          channel[x][y] = 0;
-        }
-      }
+      // Apply inverse Haar transform to columns
+      inverseTransformColumns(plane, rows, cols);
+      forEachRange(rows, cols, (start, end) -> plane.inverseTransformRows(start, end, cols));
     }
+    // The padding is left in place; only the top left corner of the size of the image is read.
   }
 
-  private double calculateThreshold(double compressionPercentage) {
-    Set<Double> uniqueValues = new HashSet<>();
-    uniqueValues = addToUniqueValues(transformedR, uniqueValues);
-    uniqueValues = addToUniqueValues(transformedG, uniqueValues);
-    uniqueValues = addToUniqueValues(transformedB, uniqueValues);
-    List<Double> sortedList = new ArrayList<>(uniqueValues);
-    Collections.sort(sortedList);
-    int totalCount = sortedList.size();
-    int cutOffIndex = Math.min(Math.round((float) (compressionPercentage * totalCount) / 100),
-            totalCount - 1);
+  /**
+   * Inverts {@link #transformColumns(Plane, int, int)} in place.
+   */
+  private void inverseTransformColumns(Plane plane, int rows, int cols) {
+    if (cols < plane.cols()) {
+      forEachRange(cols, rows, (start, end) -> plane.inverseTransformColumns(start, end, rows));
+      return;
+    }
 
-    double threshold = sortedList.get(cutOffIndex);
-    return threshold;
+    int mid = rows / 2;
+    forEachRange(mid, 2 * cols,
+        (start, end) -> plane.inverseTransformRowPairs(start, end, mid, cols));
+
+    Object[] rowArray = plane.rowArray();
+    Object[] reordered = new Object[rows];
+    for (int i = 0; i < mid; i++) {
+      reordered[2 * i] = rowArray[i];
+      reordered[2 * i + 1] = rowArray[mid + i];
+    }
+    if (rows % 2 != 0) {
+      plane.clearRow(rows - 1);
+      reordered[rows - 1] = rowArray[rows - 1];
+    }
+    System.arraycopy(reordered, 0, rowArray, 0, rows);
   }
 
-  private Set<Double> addToUniqueValues(double[][] imageArr, Set<Double> uniqueValues) {
-    int rows = imageArr.length;
-    int cols = imageArr[0].length;
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        uniqueValues.add(Math.abs(imageArr[i][j]));
+
+  private int[] combinePixel(ImageContent sourceImage) {
+
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
+
+    int[] imageRGBData = new int[width * height];
+
+    forEachRange(height, width, (start, end) -> {
+      int[] red = new int[width];
+      int[] green = new int[width];
+      int[] blue = new int[width];
+      for (int y = start; y < end; y++) {
+        // Round and convert each channel to int
+        channels[0].round(y, width, red);
+        channels[1].round(y, width, green);
+        channels[2].round(y, width, blue);
+
+        for (int x = 0; x < width; x++) {
+          // Ensure that the values are within the valid range (0 to 255)
+          int r = Math.max(0, Math.min(255, red[x]));
+          int g = Math.max(0, Math.min(255, green[x]));
+          int b = Math.max(0, Math.min(255, blue[x]));
+
+          // Store the values in the imageRGBData array
+          imageRGBData[y * width + x] = ImageContent.pack(r, g, b);
+        }
       }
-    }
-    return uniqueValues;
+    });
+
+    return imageRGBData;
   }
 
-  private double[][] applyHaarWaveletTransform(double[][] imageArr) {
-    int rows = imageArr.length;
-    int cols = imageArr[0].length;
 
-    for (int i = 0; i < rows; i++) {
-      imageArr[i] = transformImage(imageArr[i], cols);
+  /**
+   * Compress an image using Haar Wavelet Transform and thresholding techniques.
+   *
+   * @param sourceImage           The source image.
+   * @param compressionPercentage The percentage of compression to be applied to the image.
+   * @return The packed pixels of the compressed image.
+   */
+  protected int[] compress(ImageContent sourceImage, double compressionPercentage) {
+    // Check if compressionPercentage is within a valid range
+    if (compressionPercentage < 0 || compressionPercentage > 100) {
+      System.out.println("Compression percentage must be between 0 and 100.");
+      return null;
+    } else {
+      initialPadding(sourceImage, compressionPercentage);
+      applyCompression(compressionPercentage);
+      return combinePixel(sourceImage);
     }
-    for (int j = 0; j < cols; j++) {
-      double[] column = new double[rows];
-      for (int i = 0; i < rows; i++) {
-        column[i] = imageArr[i][j];
-      }
-      column = transformImage(column, rows);
-      for (int i = 0; i < rows; i++) {
-        imageArr[i][j] = column[i];
+
+  }
+
+  private void forEachChannel(ChannelAction action) {
+    forEachRange(3, GRAIN_VALUES, (start, end) -> {
+      for (int channel = start; channel < end; channel++) {
+        action.run(channel);
       }
-    }
+    });
+  }
 
-    return imageArr;
+  /**
+   * Runs an action over the range 0 to count, split into parallel subranges of at least
+   * `GRAIN_VALUES` channel values. Small ranges run on the current thread, and ranges started
+   * from inside a task of the pool are forked within that task. A compression started from
+   * {@link Cancellation#run} stops between ranges once it is cancelled.
+   */
+  private void forEachRange(int count, int valuesPerItem, RangeAction action) {
+    int grain = Math.max(1, GRAIN_VALUES / Math.max(1, valuesPerItem));
+    BooleanSupplier cancelled = Cancellation.current();
+    if (count <= grain) {
+      Cancellation.check(cancelled);
+      action.run(0, count);
+      return;
+    }
+    Range range = new Range(action, 0, count, grain, cancelled);
+    if (ForkJoinTask.getPool() == pool) {
+      // Already running as a task of the pool, for example one command of a parallel script.
+      range.invoke();
+    } else {
+      pool.invoke(range);
+    }
   }
 
-  private double[] transformImage(double[] s, int length) {
+  /**
+   * Transforms a sequence in place, moving the averages to its first half and the differences
+   * to its second half. The scratch array must be at least as long as the sequence.
+   */
+  private static void transformImage(double[] s, int length, double[] scratch) {
     int mid = length / 2;
-    double[] avg = new double[mid];
-    double[] diff = new double[mid];
 
     for (int i = 0, j = 0; i < mid; i++, j += 2) {
       double a = s[j];
       double b = s[j + 1];
-      avg[i] = (a + b) / Math.sqrt(2);
-      diff[i] = (a - b) / Math.sqrt(2);
+      scratch[i] = (a + b) / SQRT_2;
+      scratch[mid + i] = (a - b) / SQRT_2;
     }
 
-    double[] transformedSequence = new double[length];
-    System.arraycopy(avg, 0, transformedSequence, 0, mid);
-    System.arraycopy(diff, 0, transformedSequence, mid, mid);
-
-    return transformedSequence;
+    System.arraycopy(scratch, 0, s, 0, 2 * mid);
+    if (length % 2 != 0) {
+      // The last value of an odd length sequence has no partner and is dropped.
+      s[length - 1] = 0;
+    }
   }
 
-  private double[][] inverseHaarWaveletTransform(double[][] imageArr, int originalRows, int
-          originalCols) {
-    int rows = imageArr.length;
-    int cols = imageArr[0].length;
+  /**
+   * Inverts {@link #transformImage(double[], int, double[])} in place.
+   */
+  private static void inverseTransformImage(double[] s, int length, double[] scratch) {
+    int mid = length / 2;
 
-    // Apply inverse Haar transform to columns
-    for (int j = 0; j < cols; j++) {
-      double[] column = new double[rows];
-      for (int i = 0; i < rows; i++) {
-        column[i] = imageArr[i][j];
-      }
-      column = inverseTransformImage(column, rows);
-      for (int i = 0; i < rows; i++) {
-        imageArr[i][j] = column[i];
-      }
+    for (int i = 0, j = 0; i < mid; i++, j += 2) {
+      double avg = s[i];
+      double diff = s[i + mid];
+      scratch[j] = (avg + diff) / SQRT_2;
+      scratch[j + 1] = (avg - diff) / SQRT_2;
     }
 
-    for (int i = 0; i < rows; i++) {
-      imageArr[i] = inverseTransformImage(imageArr[i], cols);
+    System.arraycopy(scratch, 0, s, 0, 2 * mid);
+    if (length % 2 != 0) {
+      s[length - 1] = 0;
     }
+  }
 
-    double[][] unpaddedImage = new double[originalRows][originalCols];
-    for (int i = 0; i < originalRows; i++) {
-      for (int j = 0; j < originalCols; j++) {
-        unpaddedImage[i][j] = (i < rows && j < cols) ? imageArr[i][j] : 0.0;
-      }
+  /**
+   * The single precision version of {@link #transformImage(double[], int, double[])}.
+   */
+  private static void transformImage(float[] s, int length, float[] scratch) {
+    int mid = length / 2;
+
+    for (int i = 0, j = 0; i < mid; i++, j += 2) {
+      float a = s[j];
+      float b = s[j + 1];
+      scratch[i] = (a + b) / FLOAT_SQRT_2;
+      scratch[mid + i] = (a - b) / FLOAT_SQRT_2;
     }
 
-    return unpaddedImage;
+    System.arraycopy(scratch, 0, s, 0, 2 * mid);
+    if (length % 2 != 0) {
+      s[length - 1] = 0;
+    }
   }
 
-
-  private double[] inverseTransformImage(double[] s, int length) {
+  /**
+   * The single precision version of {@link #inverseTransformImage(double[], int, double[])}.
+   */
+  private static void inverseTransformImage(float[] s, int length, float[] scratch) {
     int mid = length / 2;
-    double[] originalSequence = new double[length];
 
     for (int i = 0, j = 0; i < mid; i++, j += 2) {
-      if (j < length - 1) {
-        double avg = s[i];
-        double diff = s[i + mid];
-        originalSequence[j] = (avg + diff) / Math.sqrt(2);
-        originalSequence[j + 1] = (avg - diff) / Math.sqrt(2);
+      float avg = s[i];
+      float diff = s[i + mid];
+      scratch[j] = (avg + diff) / FLOAT_SQRT_2;
+      scratch[j + 1] = (avg - diff) / FLOAT_SQRT_2;
+    }
+
+    System.arraycopy(scratch, 0, s, 0, 2 * mid);
+    if (length % 2 != 0) {
+      s[length - 1] = 0;
+    }
+  }
+
+  /**
+   * An action applied to one color channel.
+   */
+  private interface ChannelAction {
+
+    /**
+     * Process a single channel.
+     *
+     * @param channel The index of the channel: 0 for red, 1 for green and 2 for blue.
+     */
+    void run(int channel);
+  }
+
+  /**
+   * An action applied to a contiguous range of rows or row pairs.
+   */
+  private interface RangeAction {
+
+    /**
+     * Process the items from the start index up to, but excluding, the end index.
+     *
+     * @param start The first item to process.
+     * @param end   The item after the last item to process.
+     */
+    void run(int start, int end);
+  }
+
+  /**
+   * A range of items that is split in half until it is no larger than its grain, with the
+   * halves processed in parallel.
+   */
+  private static final class Range extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RangeAction action;
+    private final int start;
+    private final int end;
+    private final int grain;
+    private final BooleanSupplier cancelled;
+
+    private Range(RangeAction action, int start, int end, int grain, BooleanSupplier cancelled) {
+      this.action = action;
+      this.start = start;
+      this.end = end;
+      this.grain = grain;
+      this.cancelled = cancelled;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > grain) {
+        int middle = start + (end - start) / 2;
+        invokeAll(new Range(action, start, middle, grain, cancelled),
+                new Range(action, middle, end, grain, cancelled));
       } else {
-        // If length is odd, handle the last element
-        originalSequence[j] = s[i];
+        Cancellation.check(cancelled);
+        action.run(start, end);
       }
     }
+  }
+
+  /**
+   * One color channel, stored row by row. All of the work on the values of a channel goes
+   * through the row and range operations of this class, so that the passes above do not depend
+   * on the precision the values are stored in.
+   */
+  private abstract static class Plane {
+    private final int rows;
+    private final int cols;
+
+    private Plane(int rows, int cols) {
+      this.rows = rows;
+      this.cols = cols;
+    }
+
+    int rows() {
+      return rows;
+    }
+
+    int cols() {
+      return cols;
+    }
 
-    return originalSequence;
+    /**
+     * Returns the array of rows itself, so that rows can be reordered by reference.
+     */
+    abstract Object[] rowArray();
+
+    /**
+     * Copies one channel of the given rows of an image into the top left corner of the plane.
+     */
+    abstract void load(int[] packedRgb, int width, int shift, int startRow, int endRow);
+
+    abstract void clearRow(int row);
+
+    /**
+     * Transforms the first `length` values of each of the given rows.
+     */
+    abstract void transformRows(int startRow, int endRow, int length);
+
+    abstract void inverseTransformRows(int startRow, int endRow, int length);
+
+    /**
+     * Combines the rows 2i and 2i + 1 of each of the given pairs into their average and
+     * difference, over the first `length` columns.
+     */
+    abstract void transformRowPairs(int startPair, int endPair, int length);
+
+    /**
+     * Combines the rows i and mid + i of each of the given pairs back into the two rows they
+     * were made from, over the first `length` columns.
+     */
+    abstract void inverseTransformRowPairs(int startPair, int endPair, int mid, int length);
+
+    /**
+     * Transforms the first `length` values of each of the given columns.
+     */
+    abstract void transformColumns(int startColumn, int endColumn, int length);
+
+    abstract void inverseTransformColumns(int startColumn, int endColumn, int length);
+
+    /**
+     * Sets every value of the given rows whose magnitude does not exceed the threshold to zero.
+     */
+    abstract void threshold(int startRow, int endRow, double threshold);
+
+    /**
+     * Returns the distinct absolute values of the plane in ascending order.
+     */
+    abstract double[] distinctAbsoluteValues();
+
+    /**
+     * Rounds the first `width` values of a row to the nearest integers.
+     */
+    abstract void round(int row, int width, int[] values);
   }
 
+  /**
+   * A channel stored in double precision.
+   */
+  private static final class DoublePlane extends Plane {
+    private final double[][] data;
+
+    private DoublePlane(int rows, int cols) {
+      super(rows, cols);
+      data = new double[rows][cols];
+    }
 
-  private int[][][] combinePixel(int[][][] sourceRgb) {
+    @Override
+    Object[] rowArray() {
+      return data;
+    }
 
-    int height = sourceRgb.length;
-    int width = sourceRgb[0].length;
+    @Override
+    void load(int[] packedRgb, int width, int shift, int startRow, int endRow) {
+      for (int y = startRow; y < endRow; y++) {
+        double[] row = data[y];
+        for (int x = 0; x < width; x++) {
+          row[x] = (packedRgb[y * width + x] >> shift) & 0xFF;
+        }
+      }
+    }
 
-    int[][][] imageRGBData = new int[height][width][3];
+    @Override
+    void clearRow(int row) {
+      Arrays.fill(data[row], 0);
+    }
 
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        // Round and convert each channel to int
-        int red = (int) Math.round(transformedR[y][x]);
-        int green = (int) Math.round(transformedG[y][x]);
-        int blue = (int) Math.round(transformedB[y][x]);
-
-        // Ensure that the values are within the valid range (0 to 255)
-        red = Math.max(0, Math.min(255, red));
-        green = Math.max(0, Math.min(255, green));
-        blue = Math.max(0, Math.min(255, blue));
-
-        // Store the values in the imageRGBData array
-        imageRGBData[y][x][0] = red;
-        imageRGBData[y][x][1] = green;
-        imageRGBData[y][x][2] = blue;
+    @Override
+    void transformRows(int startRow, int endRow, int length) {
+      double[] scratch = new double[length];
+      for (int i = startRow; i < endRow; i++) {
+        transformImage(data[i], length, scratch);
       }
     }
 
-    return imageRGBData;
-  }
+    @Override
+    void inverseTransformRows(int startRow, int endRow, int length) {
+      double[] scratch = new double[length];
+      for (int i = startRow; i < endRow; i++) {
+        inverseTransformImage(data[i], length, scratch);
+      }
+    }
+
+    @Override
+    void transformRowPairs(int startPair, int endPair, int length) {
+      for (int i = startPair; i < endPair; i++) {
+        double[] even = data[2 * i];
+        double[] odd = data[2 * i + 1];
+        for (int j = 0; j < length; j++) {
+          double a = even[j];
+          double b = odd[j];
+          even[j] = (a + b) / SQRT_2;
+          odd[j] = (a - b) / SQRT_2;
+        }
+      }
+    }
+
+    @Override
+    void inverseTransformRowPairs(int startPair, int endPair, int mid, int length) {
+      for (int i = startPair; i < endPair; i++) {
+        double[] avgRow = data[i];
+        double[] diffRow = data[mid + i];
+        for (int j = 0; j < length; j++) {
+          double avg = avgRow[j];
+          double diff = diffRow[j];
+          avgRow[j] = (avg + diff) / SQRT_2;
+          diffRow[j] = (avg - diff) / SQRT_2;
+        }
+      }
+    }
 
+    @Override
+    void transformColumns(int startColumn, int endColumn, int length) {
+      double[] column = new double[length];
+      double[] scratch = new double[length];
+      for (int j = startColumn; j < endColumn; j++) {
+        for (int i = 0; i < length; i++) {
+          column[i] = data[i][j];
+        }
+        transformImage(column, length, scratch);
+        for (int i = 0; i < length; i++) {
+          data[i][j] = column[i];
+        }
+      }
+    }
+
+    @Override
+    void inverseTransformColumns(int startColumn, int endColumn, int length) {
+      double[] column = new double[length];
+      double[] scratch = new double[length];
+      for (int j = startColumn; j < endColumn; j++) {
+        for (int i = 0; i < length; i++) {
+          column[i] = data[i][j];
+        }
+        inverseTransformImage(column, length, scratch);
+        for (int i = 0; i < length; i++) {
+          data[i][j] = column[i];
+        }
+      }
+    }
+
+    @Override
+    void threshold(int startRow, int endRow, double threshold) {
+      for (int i = startRow; i < endRow; i++) {
+        double[] row = data[i];
+        for (int j = 0; j < row.length; j++) {
+          if (Math.abs(row[j]) <= threshold) {
+            row[j] = 0;
+          }
+        }
+      }
+    }
+
+    /**
+     * Sorting the primitive values orders them exactly like sorting boxed doubles, and the
+     * absolute values contain no negative zero, so equal neighbours are the duplicates.
+     */
+    @Override
+    double[] distinctAbsoluteValues() {
+      double[] values = new double[rows() * cols()];
+      int offset = 0;
+      for (double[] row : data) {
+        for (double value : row) {
+          values[offset++] = Math.abs(value);
+        }
+      }
+
+      Arrays.sort(values);
+      int count = values.length == 0 ? 0 : 1;
+      for (int i = 1; i < values.length; i++) {
+        if (values[i] != values[count - 1]) {
+          values[count++] = values[i];
+        }
+      }
+      return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    void round(int row, int width, int[] values) {
+      for (int x = 0; x < width; x++) {
+        values[x] = (int) Math.round(data[row][x]);
+      }
+    }
+  }
 
   /**
-   * Compress an image using Haar Wavelet Transform and thresholding techniques.
-   *
-   * @param sourceRgb             The RGB data of the source image.
-   * @param compressionPercentage The percentage of compression to be applied to the image.
-   * @return The RGB data of the compressed image.
+   * A channel stored in single precision, which takes half the memory of a double precision
+   * channel.
    */
-  protected int[][][] compress(int[][][] sourceRgb, double compressionPercentage) {
-    // Check if compressionPercentage is within a valid range
-    if (compressionPercentage < 0 || compressionPercentage > 100) {
-      System.out.println("Compression percentage must be between 0 and 100.");
-      return null;
-    } else {
-      initialPadding(sourceRgb, compressionPercentage);
-      applyCompression(compressionPercentage, sourceRgb);
-      return combinePixel(sourceRgb);
+  private static final class FloatPlane extends Plane {
+    private final float[][] data;
+
+    private FloatPlane(int rows, int cols) {
+      super(rows, cols);
+      data = new float[rows][cols];
     }
 
-  }
+    @Override
+    Object[] rowArray() {
+      return data;
+    }
+
+    @Override
+    void load(int[] packedRgb, int width, int shift, int startRow, int endRow) {
+      for (int y = startRow; y < endRow; y++) {
+        float[] row = data[y];
+        for (int x = 0; x < width; x++) {
+          row[x] = (packedRgb[y * width + x] >> shift) & 0xFF;
+        }
+      }
+    }
+
+    @Override
+    void clearRow(int row) {
+      Arrays.fill(data[row], 0);
+    }
+
+    @Override
+    void transformRows(int startRow, int endRow, int length) {
+      float[] scratch = new float[length];
+      for (int i = startRow; i < endRow; i++) {
+        transformImage(data[i], length, scratch);
+      }
+    }
+
+    @Override
+    void inverseTransformRows(int startRow, int endRow, int length) {
+      float[] scratch = new float[length];
+      for (int i = startRow; i < endRow; i++) {
+        inverseTransformImage(data[i], length, scratch);
+      }
+    }
+
+    @Override
+    void transformRowPairs(int startPair, int endPair, int length) {
+      for (int i = startPair; i < endPair; i++) {
+        float[] even = data[2 * i];
+        float[] odd = data[2 * i + 1];
+        for (int j = 0; j < length; j++) {
+          float a = even[j];
+          float b = odd[j];
+          even[j] = (a + b) / FLOAT_SQRT_2;
+          odd[j] = (a - b) / FLOAT_SQRT_2;
+        }
+      }
+    }
 
-}
\ No newline at end of file
+    @Override
+    void inverseTransformRowPairs(int startPair, int endPair, int mid, int length) {
+      for (int i = startPair; i < endPair; i++) {
+        float[] avgRow = data[i];
+        float[] diffRow = data[mid + i];
+        for (int j = 0; j < length; j++) {
+          float avg = avgRow[j];
+          float diff = diffRow[j];
+          avgRow[j] = (avg + diff) / FLOAT_SQRT_2;
+          diffRow[j] = (avg - diff) / FLOAT_SQRT_2;
+        }
+      }
+    }
+
+    @Override
+    void transformColumns(int startColumn, int endColumn, int length) {
+      float[] column = new float[length];
+      float[] scratch = new float[length];
+      for (int j = startColumn; j < endColumn; j++) {
+        for (int i = 0; i < length; i++) {
+          column[i] = data[i][j];
+        }
+        transformImage(column, length, scratch);
+        for (int i = 0; i < length; i++) {
+          data[i][j] = column[i];
+        }
+      }
+    }
+
+    @Override
+    void inverseTransformColumns(int startColumn, int endColumn, int length) {
+      float[] column = new float[length];
+      float[] scratch = new float[length];
+      for (int j = startColumn; j < endColumn; j++) {
+        for (int i = 0; i < length; i++) {
+          column[i] = data[i][j];
+        }
+        inverseTransformImage(column, length, scratch);
+        for (int i = 0; i < length; i++) {
+          data[i][j] = column[i];
+        }
+      }
+    }
+
+    @Override
+    void threshold(int startRow, int endRow, double threshold) {
+      for (int i = startRow; i < endRow; i++) {
+        float[] row = data[i];
+        for (int j = 0; j < row.length; j++) {
+          if (Math.abs(row[j]) <= threshold) {
+            row[j] = 0;
+          }
+        }
+      }
+    }
+
+    @Override
+    double[] distinctAbsoluteValues() {
+      float[] values = new float[rows() * cols()];
+      int offset = 0;
+      for (float[] row : data) {
+        for (float value : row) {
+          values[offset++] = Math.abs(value);
+        }
+      }
+
+      Arrays.sort(values);
+      int count = values.length == 0 ? 0 : 1;
+      for (int i = 1; i < values.length; i++) {
+        if (values[i] != values[count - 1]) {
+          values[count++] = values[i];
+        }
+      }
+
+      // Every float is exactly representable as a double, so the order and the threshold
+      // comparisons are unchanged by the conversion.
+      double[] distinct = new double[count];
+      for (int i = 0; i < count; i++) {
+        distinct[i] = values[i];
+      }
+      return distinct;
+    }
+
+    @Override
+    void round(int row, int width, int[] values) {
+      for (int x = 0; x < width; x++) {
+        values[x] = Math.round(data[row][x]);
+      }
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The `ConvolutionEngine` class applies a square convolution kernel to packed RGB pixels. The
+ * image is split into bands of rows that are convolved in parallel on a `ForkJoinPool`. Pixels
+ * whose neighbourhood lies fully inside the image are handled by a loop that reads the
+ * neighbours through precomputed offsets, and only the pixels along the border clamp their
+ * coordinates to the edge of the image. Separable kernels are applied as a horizontal pass
+ * followed by a vertical pass. A convolution started from {@link Cancellation#run} stops between
+ * bands once it is cancelled.
+ */
+class ConvolutionEngine {
+
+  /**
+   * The number of pixels below which a band of rows is convolved on the current thread instead
+   * of being split further.
+   */
+  private static final int BAND_PIXELS = 1 << 15;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a `ConvolutionEngine` that runs its bands on the given pool.
+   *
+   * @param pool The pool on which the bands of rows are convolved.
+   */
+  ConvolutionEngine(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Convolve the first columns of an image with a square kernel. Pixels to the right of the
+   * given column count are copied from the source unchanged. The result is identical to
+   * evaluating the kernel one pixel at a time with the neighbour coordinates clamped to the
+   * image.
+   *
+   * @param source  The packed pixels of the source image.
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param kernel  The kernel in row-major order. Its length must be an odd square.
+   * @param columns The number of columns, counted from the left, to convolve.
+   * @return The packed pixels of the resulting image.
+   */
+  int[] convolve(int[] source, int width, int height, float[] kernel, int columns) {
+    int[] result = new int[width * height];
+    run(new Job(source, result, width, height, kernel, columns), width, height);
+    return result;
+  }
+
+  /**
+   * Convolve the first columns of an image with a separable kernel by running a horizontal
+   * pass and then a vertical pass. Pixels to the right of the given column count are copied from
+   * the source unchanged. Borders are handled by clamping coordinates to the image, as with
+   * {@link #convolve(int[], int, int, float[], int)}.
+   *
+   * @param source  The packed pixels of the source image.
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param kernel  The separable kernel.
+   * @param columns The number of columns, counted from the left, to convolve.
+   * @return The packed pixels of the resulting image.
+   */
+  int[] convolveSeparable(int[] source, int width, int height, SeparableKernel kernel,
+                          int columns) {
+    int[] result = new int[width * height];
+    run(new SeparableJob(source, result, width, height, kernel, columns), width, height);
+    return result;
+  }
+
+  private void run(Rows rows, int width, int height) {
+    Band band = new Band(rows, width, 0, height, Cancellation.current());
+    if ((long) width * height <= BAND_PIXELS) {
+      band.compute();
+    } else if (ForkJoinTask.getPool() == pool) {
+      // Already running as a task of the pool, for example one command of a parallel script.
+      band.invoke();
+    } else {
+      pool.invoke(band);
+    }
+  }
+
+  /**
+   * A convolution that can compute any range of rows of its result independently.
+   */
+  private interface Rows {
+
+    /**
+     * Compute the rows of the result from the start row up to, but excluding, the end row.
+     *
+     * @param startRow The first row to compute.
+     * @param endRow   The row after the last row to compute.
+     */
+    void computeRows(int startRow, int endRow);
+  }
+
+  /**
+   * The immutable description of a single convolution shared by all of its bands.
+   */
+  private static final class Job implements Rows {
+    private final int[] source;
+    private final int[] result;
+    private final int width;
+    private final int height;
+    private final float[] kernel;
+    private final int radius;
+    private final int columns;
+    private final int[] offsets;
+
+    private Job(int[] source, int[] result, int width, int height, float[] kernel, int columns) {
+      this.source = source;
+      this.result = result;
+      this.width = width;
+      this.height = height;
+      this.kernel = kernel;
+      this.columns = Math.min(width, Math.max(0, columns));
+
+      int kernelSize = (int) Math.sqrt(kernel.length);
+      this.radius = kernelSize / 2;
+
+      // Distance in the packed array from a pixel to each of its neighbours, in kernel order.
+      this.offsets = new int[kernel.length];
+      int kernelIndex = 0;
+      for (int ky = -radius; ky <= radius; ky++) {
+        for (int kx = -radius; kx <= radius; kx++) {
+          offsets[kernelIndex++] = ky * width + kx;
+        }
+      }
+    }
+
+    @Override
+    public void computeRows(int startRow, int endRow) {
+      for (int y = startRow; y < endRow; y++) {
+        convolveRow(y);
+      }
+    }
+
+    private void convolveRow(int y) {
+      int rowOffset = y * width;
+      boolean interiorRow = y >= radius && y < height - radius;
+      int interiorStart = interiorRow ? Math.min(radius, columns) : columns;
+      int interiorEnd = interiorRow
+              ? Math.max(interiorStart, Math.min(width - radius, columns)) : columns;
+
+      for (int x = 0; x < interiorStart; x++) {
+        result[rowOffset + x] = borderPixel(x, y);
+      }
+      for (int x = interiorStart; x < interiorEnd; x++) {
+        result[rowOffset + x] = interiorPixel(rowOffset + x);
+      }
+      for (int x = interiorEnd; x < columns; x++) {
+        result[rowOffset + x] = borderPixel(x, y);
+      }
+      System.arraycopy(source, rowOffset + columns, result, rowOffset + columns,
+              width - columns);
+    }
+
+    private int interiorPixel(int index) {
+      int rgb = 0;
+      for (int shift = 16; shift >= 0; shift -= 8) {
+        float sum = 0.0f;
+        for (int kernelIndex = 0; kernelIndex < kernel.length; kernelIndex++) {
+          sum += kernel[kernelIndex] * ((source[index + offsets[kernelIndex]] >> shift) & 0xFF);
+        }
+        rgb |= Math.min(255, Math.max(0, (int) sum)) << shift;
+      }
+      return rgb;
+    }
+
+    private int borderPixel(int x, int y) {
+      int rgb = 0;
+      for (int shift = 16; shift >= 0; shift -= 8) {
+        float sum = 0.0f;
+        int kernelIndex = 0;
+        for (int ky = -radius; ky <= radius; ky++) {
+          int pixelY = Math.min(height - 1, Math.max(0, y + ky));
+          for (int kx = -radius; kx <= radius; kx++) {
+            int pixelX = Math.min(width - 1, Math.max(0, x + kx));
+            sum += kernel[kernelIndex] * ((source[pixelY * width + pixelX] >> shift) & 0xFF);
+            kernelIndex++;
+          }
+        }
+        rgb |= Math.min(255, Math.max(0, (int) sum)) << shift;
+      }
+      return rgb;
+    }
+  }
+
+  /**
+   * The description of a separable convolution shared by all of its bands. Each band keeps the
+   * horizontal pass of the last 2r + 1 source rows in a ring of row buffers, so every source row
+   * is filtered horizontally at most once per band.
+   */
+  private static final class SeparableJob implements Rows {
+    private final int[] source;
+    private final int[] result;
+    private final int width;
+    private final int height;
+    private final float[] horizontal;
+    private final float[] vertical;
+    private final int radius;
+    private final int columns;
+
+    private SeparableJob(int[] source, int[] result, int width, int height,
+                         SeparableKernel kernel, int columns) {
+      this.source = source;
+      this.result = result;
+      this.width = width;
+      this.height = height;
+      this.horizontal = kernel.getHorizontal();
+      this.vertical = kernel.getVertical();
+      this.radius = kernel.getRadius();
+      this.columns = Math.min(width, Math.max(0, columns));
+    }
+
+    @Override
+    public void computeRows(int startRow, int endRow) {
+      int ringSize = 2 * radius + 1;
+      // Horizontally filtered red, green and blue values of a source row, one ring slot each.
+      float[][] ring = new float[ringSize][3 * columns];
+      int[] ringRow = new int[ringSize];
+      Arrays.fill(ringRow, -1);
+      float[][] taps = new float[ringSize][];
+
+      for (int y = startRow; y < endRow; y++) {
+        // The rows y - r to y + r, clamped to the image, never share a slot of the ring.
+        for (int ky = -radius; ky <= radius; ky++) {
+          int pixelY = Math.min(height - 1, Math.max(0, y + ky));
+          int slot = pixelY % ringSize;
+          if (ringRow[slot] != pixelY) {
+            filterRow(pixelY, ring[slot]);
+            ringRow[slot] = pixelY;
+          }
+          taps[ky + radius] = ring[slot];
+        }
+
+        int rowOffset = y * width;
+        for (int x = 0; x < columns; x++) {
+          int rgb = 0;
+          for (int channel = 0; channel < 3; channel++) {
+            int index = 3 * x + channel;
+            float sum = 0.0f;
+            for (int ky = 0; ky < ringSize; ky++) {
+              sum += vertical[ky] * taps[ky][index];
+            }
+            rgb |= Math.min(255, Math.max(0, (int) sum)) << (16 - 8 * channel);
+          }
+          result[rowOffset + x] = rgb;
+        }
+        System.arraycopy(source, rowOffset + columns, result, rowOffset + columns,
+                width - columns);
+      }
+    }
+
+    private void filterRow(int y, float[] row) {
+      int rowOffset = y * width;
+      int interiorStart = Math.min(radius, columns);
+      int interiorEnd = Math.max(interiorStart, Math.min(width - radius, columns));
+      for (int x = 0; x < interiorStart; x++) {
+        filterBorderPixel(rowOffset, x, row);
+      }
+      for (int x = interiorStart; x < interiorEnd; x++) {
+        for (int channel = 0; channel < 3; channel++) {
+          int shift = 16 - 8 * channel;
+          float sum = 0.0f;
+          int index = rowOffset + x - radius;
+          for (int kx = 0; kx < horizontal.length; kx++) {
+            sum += horizontal[kx] * ((source[index + kx] >> shift) & 0xFF);
+          }
+          row[3 * x + channel] = sum;
+        }
+      }
+      for (int x = interiorEnd; x < columns; x++) {
+        filterBorderPixel(rowOffset, x, row);
+      }
+    }
+
+    private void filterBorderPixel(int rowOffset, int x, float[] row) {
+      for (int channel = 0; channel < 3; channel++) {
+        int shift = 16 - 8 * channel;
+        float sum = 0.0f;
+        for (int kx = -radius; kx <= radius; kx++) {
+          int pixelX = Math.min(width - 1, Math.max(0, x + kx));
+          sum += horizontal[kx + radius] * ((source[rowOffset + pixelX] >> shift) & 0xFF);
+        }
+        row[3 * x + channel] = sum;
+      }
+    }
+  }
+
+  /**
+   * A band of rows of a convolution. Bands larger than `BAND_PIXELS` are split in half and the
+   * halves are convolved in parallel.
+   */
+  private static final class Band extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Rows rows;
+    private final int width;
+    private final int startRow;
+    private final int endRow;
+    private final BooleanSupplier cancelled;
+
+    private Band(Rows rows, int width, int startRow, int endRow, BooleanSupplier cancelled) {
+      this.rows = rows;
+      this.width = width;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.cancelled = cancelled;
+    }
+
+    @Override
+    protected void compute() {
+      int count = endRow - startRow;
+      if (count > 1 && (long) count * width > BAND_PIXELS) {
+        int middle = startRow + count / 2;
+        invokeAll(new Band(rows, width, startRow, middle, cancelled),
+                new Band(rows, width, middle, endRow, cancelled));
+      } else {
+        Cancellation.check(cancelled);
+        rows.computeRows(startRow, endRow);
+      }
+    }
+  }
+}
@@ -55,6 +55,17 @@ public class Histogram {
     }
   }
 
+  /**
+   * Add every pixel of a packed image to the histogram.
+   *
+   * @param packedRgb The pixels as packed `0x00RRGGBB` values.
+   */
+  public void addValues(int[] packedRgb) {
+    for (int rgb : packedRgb) {
+      addValue((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+  }
+
   /**
    * Calculate the maximum count of all color values in the histogram.
    */
@@ -156,5 +167,16 @@ public class Histogram {
 
   }
 
+  /**
+   * Creates a histogram from the packed pixels of an image. The histogram is represented by
+   * three arrays, one for each color channel (red, green, and blue).
+   *
+   * @param packedRgb The pixels of the source image as packed `0x00RRGGBB` values.
+   */
+  public void createHistogram(int[] packedRgb) {
+    addValues(packedRgb);
+    calculateMaxCount();
+  }
+
 
 }
\ No newline at end of file
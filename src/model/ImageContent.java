@@ -3,12 +3,27 @@ package model;
 /**
  * The `ImageContent` class represents an image with its associated name and content.
  * This class is used to store image data.
+ *
+ * <p>The pixels are stored in a single contiguous array in row-major order, one packed
+ * `0x00RRGGBB` int per pixel. The three-dimensional rgb map is only built when it is
+ * requested through {@link #getRgbDataMap()}.
+ *
+ * <p>An image can also be a view of other images, such as a flipped image. Its pixels are then
+ * only materialized the first time {@link #getPackedRgb()} is called, after which the view, and
+ * with it the images it refers to, is released.
  */
 public class ImageContent {
 
   private double[][] pixels;
   private final String name;
-  private final int[][][] rgbDataMap;
+  private final int width;
+  private final int height;
+  private volatile int[] packedRgb;
+  private ImageView view;
+  private Runnable whenMaterialized;
+  private int[][][] rgbDataMap;
+  private long contentHash;
+  private boolean contentHashed;
 
   /**
    * Constructs an `ImageContent` instance with the specified name and content.
@@ -17,8 +32,42 @@ public class ImageContent {
    * @param content The content data of the image.
    */
   public ImageContent(String name, int[][][] content) {
+    this(name, content[0].length, content.length, packRgbData(content));
+  }
+
+  /**
+   * Constructs an `ImageContent` instance from packed pixel data. The array is used as is and
+   * must not be modified by the caller afterwards.
+   *
+   * @param name      The name or identifier of the image.
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param packedRgb The pixels of the image as packed `0x00RRGGBB` values in row-major order.
+   */
+  public ImageContent(String name, int width, int height, int[] packedRgb) {
+    if (packedRgb.length != width * height) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions");
+    }
     this.name = name;
-    this.rgbDataMap = content;
+    this.width = width;
+    this.height = height;
+    this.packedRgb = packedRgb;
+  }
+
+  /**
+   * Constructs an `ImageContent` whose pixels are described by a view of other images. The
+   * pixels are only copied out of the view when they are first requested.
+   *
+   * @param name   The name or identifier of the image.
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @param view   The view describing the pixels of the image.
+   */
+  ImageContent(String name, int width, int height, ImageView view) {
+    this.name = name;
+    this.width = width;
+    this.height = height;
+    this.view = view;
   }
 
   /**
@@ -31,11 +80,123 @@ public class ImageContent {
   }
 
   /**
-   * Get the RGB data of the image.
+   * Get the width of the image.
+   *
+   * @return The width of the image in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return The height of the image in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Get the packed pixels of the image. The returned array is the backing store of this image
+   * and must be treated as read-only. The pixels of a view are materialized by the first call.
+   *
+   * @return The pixels as packed `0x00RRGGBB` values in row-major order.
+   */
+  public int[] getPackedRgb() {
+    int[] pixels = packedRgb;
+    return pixels != null ? pixels : materialize();
+  }
+
+  private int[] materialize() {
+    Runnable listener;
+    synchronized (this) {
+      if (packedRgb != null) {
+        return packedRgb;
+      }
+      packedRgb = view.materialize(width, height);
+      view = null;
+      listener = whenMaterialized;
+      whenMaterialized = null;
+    }
+    // Run without the lock of this image, so the listener may take locks of its own.
+    if (listener != null) {
+      listener.run();
+    }
+    return packedRgb;
+  }
+
+  /**
+   * Registers an action to run once, right after the pixels of this view are materialized.
+   * Actions registered for the same image run in the order they were registered.
+   *
+   * @param listener The action to run.
+   * @return False if the pixels are already materialized, in which case the action never runs.
+   */
+  synchronized boolean whenMaterialized(Runnable listener) {
+    if (packedRgb != null) {
+      return false;
+    }
+    Runnable previous = whenMaterialized;
+    whenMaterialized = previous == null ? listener : () -> {
+      previous.run();
+      listener.run();
+    };
+    return true;
+  }
+
+  /**
+   * Checks whether the pixels of the image are held in its own array, rather than only
+   * described by a view of other images.
+   *
+   * @return True once the pixels are materialized.
+   */
+  public boolean isMaterialized() {
+    return packedRgb != null;
+  }
+
+  /**
+   * Get the view describing the pixels of the image, if they are not materialized yet.
+   *
+   * @return The view, or null if the image holds its own pixels.
+   */
+  synchronized ImageView getView() {
+    return view;
+  }
+
+  /**
+   * Get a 64-bit hash of the dimensions and pixels of the image. Images with the same pixels
+   * have the same hash whatever their name. The hash is computed the first time it is requested,
+   * which is safe because the pixels of an image are never modified.
+   *
+   * @return The hash of the content of the image.
+   */
+  public synchronized long getContentHash() {
+    if (!contentHashed) {
+      long hash = width * 0x9E3779B97F4A7C15L + height;
+      for (int rgb : getPackedRgb()) {
+        hash = (hash ^ rgb) * 0x100000001B3L + 0x9E3779B97F4A7C15L;
+      }
+      // Spread every input bit over the whole result.
+      hash ^= hash >>> 33;
+      hash *= 0xFF51AFD7ED558CCDL;
+      hash ^= hash >>> 33;
+      contentHash = hash;
+      contentHashed = true;
+    }
+    return contentHash;
+  }
+
+  /**
+   * Get the RGB data of the image. The array is built from the packed pixels the first time it
+   * is requested and is not written back to the image.
    *
    * @return The content data of the image.
    */
-  public int[][][] getRgbDataMap() {
+  public synchronized int[][][] getRgbDataMap() {
+    if (rgbDataMap == null) {
+      rgbDataMap = unpackRgbData(width, height, getPackedRgb());
+    }
     return rgbDataMap;
   }
 
@@ -47,4 +208,64 @@ public class ImageContent {
   public double[][] getPixels() {
     return pixels;
   }
-}
\ No newline at end of file
+
+  /**
+   * Packs the given channel values into a single `0x00RRGGBB` int. The values must already be
+   * in the range 0 to 255.
+   *
+   * @param red   The red channel value.
+   * @param green The green channel value.
+   * @param blue  The blue channel value.
+   * @return The packed pixel.
+   */
+  public static int pack(int red, int green, int blue) {
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Packs a three-dimensional rgb map into a row-major array of `0x00RRGGBB` ints. Channel
+   * values outside 0 to 255 are clamped.
+   *
+   * @param rgbData The RGB data of the image.
+   * @return The packed pixels.
+   */
+  public static int[] packRgbData(int[][][] rgbData) {
+    int height = rgbData.length;
+    int width = rgbData[0].length;
+    int[] packed = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      int rowOffset = y * width;
+      for (int x = 0; x < width; x++) {
+        int[] pixel = rgbData[y][x];
+        packed[rowOffset + x] = pack(clamp(pixel[0]), clamp(pixel[1]), clamp(pixel[2]));
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Unpacks a row-major array of `0x00RRGGBB` ints into a three-dimensional rgb map.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param packedRgb The packed pixels.
+   * @return The RGB data of the image.
+   */
+  public static int[][][] unpackRgbData(int width, int height, int[] packedRgb) {
+    int[][][] rgbData = new int[height][width][3];
+    for (int y = 0; y < height; y++) {
+      int rowOffset = y * width;
+      for (int x = 0; x < width; x++) {
+        int rgb = packedRgb[rowOffset + x];
+        rgbData[y][x][0] = (rgb >> 16) & 0xFF;
+        rgbData[y][x][1] = (rgb >> 8) & 0xFF;
+        rgbData[y][x][2] = rgb & 0xFF;
+      }
+    }
+    return rgbData;
+  }
+
+  private static int clamp(int value) {
+    return Math.min(255, Math.max(0, value));
+  }
+}
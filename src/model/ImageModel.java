@@ -2,8 +2,13 @@ package model;
 
 import java.awt.image.BufferedImage;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * The `ImageModel` class is a class that implements the `ImageOperations` interface. It provides
@@ -12,13 +17,6 @@ import java.util.Map;
  */
 public class ImageModel implements ImageOperations {
 
-  /**
-   * The `imageMap` is a map that stores the name of the image as the key and the image content as
-   * the value.
-   */
-  protected static final Map<String, ImageContent> IMAGE_MAP = new HashMap<>();
-
-
   protected float[] sharpeningKernel = {
     -1.0f / 8.0f, -1.0f / 8.0f, -1.0f / 8.0f, -1.0f / 8.0f, -1.0f / 8.0f,
     -1.0f / 8.0f, 1.0f / 4.0f, 1.0f / 4.0f, 1.0f / 4.0f, -1.0f / 8.0f,
@@ -33,6 +31,122 @@ public class ImageModel implements ImageOperations {
     1.0f / 16.0f, 1.0f / 8.0f, 1.0f / 16.0f
   };
 
+  private final ForkJoinPool pool;
+  private final ConvolutionEngine convolutionEngine;
+  private final ResultCache resultCache;
+  private final ImageStore imageStore;
+  private volatile boolean splitPreview;
+
+  /**
+   * Constructs an `ImageModel` that runs its parallel operations on the common pool and keeps
+   * its images in a store of its own.
+   */
+  public ImageModel() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs an `ImageModel` that runs its parallel operations, such as convolution and
+   * compression, on the given pool and keeps its images in a store of its own.
+   *
+   * @param pool The pool on which the parallel operations run.
+   */
+  public ImageModel(ForkJoinPool pool) {
+    this(pool, new ResultCache(ResultCache.DEFAULT_MAX_BYTES));
+  }
+
+  /**
+   * Constructs an `ImageModel` that runs its parallel operations on the given pool and
+   * remembers the results of its operations in the given cache. Repeating an operation with the
+   * same parameters on an image with the same pixels then reuses the cached result. The images
+   * are kept in a store of its own, within the default budget of a store.
+   *
+   * @param pool        The pool on which the parallel operations run.
+   * @param resultCache The cache of operation results.
+   */
+  public ImageModel(ForkJoinPool pool, ResultCache resultCache) {
+    this(pool, resultCache, new ImageStore(ImageStore.DEFAULT_MAX_BYTES));
+  }
+
+  /**
+   * Constructs an `ImageModel` that keeps its images in the given store. Models built with the
+   * same store see the same images.
+   *
+   * @param pool        The pool on which the parallel operations run.
+   * @param resultCache The cache of operation results.
+   * @param imageStore  The store holding the images of this model.
+   */
+  public ImageModel(ForkJoinPool pool, ResultCache resultCache, ImageStore imageStore) {
+    this.pool = pool;
+    this.convolutionEngine = new ConvolutionEngine(pool);
+    this.resultCache = resultCache;
+    this.imageStore = imageStore;
+  }
+
+  /**
+   * Turns the split-preview mode on or off. An interactive view that shows the same filter with
+   * one split after another, as its split slider moves, should turn it on. In this mode an
+   * operation applied with a split computes the whole filtered image once for each source,
+   * filter and parameters, and each split is then put together from the columns of that result
+   * and of the original, which only costs a copy of the pixels. Otherwise only the columns left
+   * of the split are computed, which is faster for a single split.
+   *
+   * @param enabled Whether split operations reuse one full-frame result.
+   */
+  public void setSplitPreview(boolean enabled) {
+    this.splitPreview = enabled;
+  }
+
+  /**
+   * Checks whether the split-preview mode is on.
+   *
+   * @return True if split operations reuse one full-frame result.
+   */
+  public boolean isSplitPreview() {
+    return splitPreview;
+  }
+
+  /**
+   * Runs operations of this model that can be abandoned part way, such as a filter whose result
+   * is no longer wanted. Convolutions and compressions check the given condition between bands
+   * of rows and ranges of values, and once it holds they stop with a
+   * {@link java.util.concurrent.CancellationException} without storing their result.
+   *
+   * @param cancelled  The condition under which the operations are abandoned.
+   * @param operations The operations to run.
+   */
+  public void runCancellable(BooleanSupplier cancelled, Runnable operations) {
+    Cancellation.run(cancelled, operations);
+  }
+
+  /**
+   * Get the pool on which the parallel operations of this model run.
+   *
+   * @return The pool.
+   */
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Get the store holding the images of this model.
+   *
+   * @return The image store.
+   */
+  public ImageStore getImageStore() {
+    return imageStore;
+  }
+
+  /**
+   * Get the cache in which this model remembers the results of its operations, with its hit and
+   * miss counters.
+   *
+   * @return The result cache.
+   */
+  public ResultCache getResultCache() {
+    return resultCache;
+  }
+
 
   /**
    * Load an image from a file and store it in the image map.
@@ -42,14 +156,94 @@ public class ImageModel implements ImageOperations {
   @Override
   public void loadImageInMap(String imageName, int[][][] imageRGBData) {
     if (imageRGBData != null) {
-      ImageContent image = new ImageContent(imageName, imageRGBData);
-      IMAGE_MAP.put(imageName, image);
-      System.out.println("Loaded image: " + imageName);
+      loadImageInMap(new ImageContent(imageName, imageRGBData));
     } else {
       System.out.println("Failed to load the image from: " + imageName);
     }
   }
 
+  /**
+   * Store an already decoded image in the image map under its own name.
+   *
+   * @param image The image to store.
+   */
+  @Override
+  public void loadImageInMap(ImageContent image) {
+    imageStore.put(image.getName(), image);
+    System.out.println("Loaded image: " + image.getName());
+  }
+
+  /**
+   * Store the pixels produced by an operation as a new image. Operations only produce the packed
+   * pixels; any other representation, such as the text of a PPM file, is created when the image
+   * is exported.
+   *
+   * @param destName The name of the resulting image.
+   * @param width    The width of the image.
+   * @param height   The height of the image.
+   * @param rgbData  The packed RGB values of the image.
+   */
+  private void storeResult(String destName, int width, int height, int[] rgbData) {
+    imageStore.put(destName, new ImageContent(destName, width, height, rgbData));
+  }
+
+  /**
+   * Store an image described by a view of other images. Its pixels are only copied when they are
+   * first read or exported.
+   *
+   * @param destName The name of the resulting image.
+   * @param width    The width of the image.
+   * @param height   The height of the image.
+   * @param view     The view describing the pixels of the image.
+   */
+  private void storeView(String destName, int width, int height, ImageView view) {
+    imageStore.put(destName, new ImageContent(destName, width, height, view));
+  }
+
+  /**
+   * Stores the result of a point operation applied to the first columns of an image. When only
+   * part of the image is transformed, just those columns are computed, and the result is a view
+   * of them next to the untouched columns of the source. In split-preview mode the whole image
+   * is transformed instead, once, and every split is a view of it.
+   */
+  private void storePointOperation(String operation, PointOperation pointOperation,
+                                   ImageContent source, String destName, int columns) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (columns >= width || splitPreview) {
+      int[] full = cached(operation, source,
+          () -> pointOperation.apply(source.getPackedRgb(), width, height, width));
+      if (columns >= width) {
+        storeResult(destName, width, height, full);
+      } else {
+        storeView(destName, width, height, ImageView.composite(
+                new ImageContent(destName, width, height, full), source, columns));
+      }
+    } else {
+      int[] region = cached(operation + " columns=" + columns, source,
+          () -> pointOperation.applyToColumns(source.getPackedRgb(), width, height, columns));
+      storeView(destName, width, height, ImageView.composite(
+              new ImageContent(destName, columns, height, region), source, columns));
+    }
+  }
+
+  /**
+   * Returns the pixels an operation with a single result produces from the given source,
+   * reusing the cached pixels when the same operation was applied to the same pixels before.
+   *
+   * @param operation The operation with all the parameters its result depends on.
+   * @param source    The image the operation reads.
+   * @param compute   Computes the pixels of the result.
+   * @return The pixels of the result.
+   */
+  private int[] cached(String operation, ImageContent source, Supplier<int[]> compute) {
+    int[][] results = resultCache.computeIfAbsent(operation, new ImageContent[]{source}, () -> {
+      int[] result = compute.get();
+      return result == null ? null : new int[][]{result};
+    });
+    return results == null ? null : results[0];
+  }
+
   /**
    * Flip an image horizontally and save it as a new image with the given name.
    *
@@ -58,22 +252,12 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void horizontalFlipImage(String sourceImageName, String destImageName) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceImageName).getRgbDataMap();
-
-    if (sourceRGBData != null) {
-      int width = sourceRGBData[0].length;
-      int height = sourceRGBData.length;
-
-      int[][][] flippedRGBData = new int[height][width][3];
+    ImageContent sourceImage = imageStore.get(sourceImageName);
 
-      for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-          flippedRGBData[y][x] = sourceRGBData[y][width - x - 1];
-        }
-      }
-      createPPMContent(width, height, flippedRGBData);
-      ImageContent flippedImage = new ImageContent(destImageName, flippedRGBData);
-      IMAGE_MAP.put(destImageName, flippedImage);
+    if (sourceImage != null) {
+      // The flipped image is a view of the source until its pixels are needed.
+      storeView(destImageName, sourceImage.getWidth(), sourceImage.getHeight(),
+              ImageView.flipped(sourceImage, true, false));
       System.out.println("Image '" + sourceImageName + "' flipped horizontally and saved as '"
               + destImageName + "'.");
     } else {
@@ -90,21 +274,11 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void verticalFlipImage(String sourceImageName, String destImageName) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceImageName).getRgbDataMap();
-
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
-    int[][][] flippedRGBData = new int[height][width][3];
+    ImageContent sourceImage = imageStore.get(sourceImageName);
 
-    for (int y = 0; y < height; y++) {
-      int newY = height - 1 - y;
-      flippedRGBData[newY] = sourceRGBData[y];
-    }
-
-    createPPMContent(width, height, flippedRGBData);
-
-    ImageContent flippedImage = new ImageContent(destImageName, flippedRGBData);
-    IMAGE_MAP.put(destImageName, flippedImage);
+    // The flipped image is a view of the source until its pixels are needed.
+    storeView(destImageName, sourceImage.getWidth(), sourceImage.getHeight(),
+            ImageView.flipped(sourceImage, false, true));
 
     System.out.println("Vertical flip completed. Flipped image saved as " + destImageName);
   }
@@ -112,50 +286,50 @@ public class ImageModel implements ImageOperations {
 
   private void applyConvolutionHelper(String sourceImageName, String destImageName, int
           splitPercentage, float[] kernel) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceImageName).getRgbDataMap();
+    applyConvolutionHelper(sourceImageName, destImageName, splitPercentage, kernel,
+            SeparableKernel.detect(kernel));
+  }
 
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
-    int[][][] resultRGBData = new int[height][width][3];
+  private void applyConvolutionHelper(String sourceImageName, String destImageName, int
+          splitPercentage, float[] kernel, SeparableKernel separableKernel) {
+    ImageContent sourceImage = imageStore.get(sourceImageName);
+
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
 
+    // Only the columns left of the split position are convolved, the rest is copied as is.
     int splitPosition = width * splitPercentage / 100;
+    int columns = splitPercentage == 0 ? width : splitPosition;
 
-    int kernelSize = (int) Math.sqrt(kernel.length);
-    int kernelRadius = kernelSize / 2;
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        if (splitPercentage == 0 || (splitPercentage > 0 && x < splitPosition)) {
-          for (int channel = 0; channel < 3; channel++) {
-            float sum = 0.0f;
-            int kernelIndex = 0;
-            for (int ky = -kernelRadius; ky <= kernelRadius; ky++) {
-              for (int kx = -kernelRadius; kx <= kernelRadius; kx++) {
-                int pixelX = Math.min(width - 1, Math.max(0, x + kx));
-                int pixelY = Math.min(height - 1, Math.max(0, y + ky));
-                float kernelValue = kernel[kernelIndex];
-                int pixelValue = sourceRGBData[pixelY][pixelX][channel];
-                sum += kernelValue * pixelValue;
-                kernelIndex++;
-              }
-            }
-            int newValue = Math.min(255, Math.max(0, (int) sum));
-            resultRGBData[y][x][channel] = newValue;
-          }
-        } else {
-          System.arraycopy(sourceRGBData[y][x], 0, resultRGBData[y][x], 0, 3);
-        }
-      }
+    if (splitPreview && columns < width) {
+      // The whole image is convolved once, and each split only picks its columns from it.
+      int[] fullRGBData = convolve(sourceImage, kernel, separableKernel, width);
+      storeView(destImageName, width, height, ImageView.composite(
+              new ImageContent(destImageName, width, height, fullRGBData), sourceImage, columns));
+    } else {
+      storeResult(destImageName, width, height,
+              convolve(sourceImage, kernel, separableKernel, columns));
     }
 
-    createPPMContent(width, height, resultRGBData);
-
-    ImageContent resultImage = new ImageContent(destImageName, resultRGBData);
-    IMAGE_MAP.put(destImageName, resultImage);
-
     System.out.println("Convolution operation completed. Result image saved as " + destImageName);
   }
 
+  private int[] convolve(ImageContent sourceImage, float[] kernel,
+                         SeparableKernel separableKernel, int columns) {
+    int width = sourceImage.getWidth();
+    int height = sourceImage.getHeight();
+    if (separableKernel != null) {
+      return cached("separable-convolution "
+                      + Arrays.toString(separableKernel.getHorizontal()) + " "
+                      + Arrays.toString(separableKernel.getVertical()) + " columns=" + columns,
+              sourceImage, () -> convolutionEngine.convolveSeparable(sourceImage.getPackedRgb(),
+                      width, height, separableKernel, columns));
+    }
+    return cached("convolution " + Arrays.toString(kernel) + " columns=" + columns,
+            sourceImage, () -> convolutionEngine.convolve(sourceImage.getPackedRgb(), width,
+                    height, kernel, columns));
+  }
+
   private void sharpenImageHelper(String sourceImageName, String destImageName,
                                   int splitPercentage) {
     applyConvolutionHelper(sourceImageName, destImageName, splitPercentage, sharpeningKernel);
@@ -219,6 +393,24 @@ public class ImageModel implements ImageOperations {
     blurImageHelper(sourceName, destName, 0);
   }
 
+  /**
+   * Applies a Gaussian blur of the given radius and standard deviation to a particular percentage
+   * of the source image. The blur is run as a horizontal and a vertical pass, so its cost grows
+   * linearly with the radius.
+   *
+   * @param sourceName      The name of the source image.
+   * @param destName        The name of the destination blurred image.
+   * @param splitPercentage The percentage of the image to be blurred.
+   * @param radius          The number of pixels on each side of a pixel that are blended in.
+   * @param sigma           The standard deviation of the Gaussian.
+   */
+  @Override
+  public void blurImage(String sourceName, String destName, int splitPercentage, int radius,
+                        double sigma) {
+    SeparableKernel kernel = SeparableKernel.gaussian(radius, sigma);
+    applyConvolutionHelper(sourceName, destName, splitPercentage, null, kernel);
+  }
+
 
   /**
    * Brighten the colors of the source image by a specified increment and save the brightened
@@ -231,75 +423,24 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void brightenImage(String sourceImageName, String destImageName, int increment) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceImageName).getRgbDataMap();
-
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
-    int[][][] brightenedRGBData = new int[height][width][3];
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        for (int channel = 0; channel < 3; channel++) {
-          int originalValue = sourceRGBData[y][x][channel];
-          int newValue = originalValue + increment;
-          newValue = Math.min(255, Math.max(0, newValue));
-          brightenedRGBData[y][x][channel] = newValue;
-        }
-      }
-    }
+    ImageContent sourceImage = imageStore.get(sourceImageName);
 
-    createPPMContent(width, height, brightenedRGBData);
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
+    int[] brightenedRGBData = cached("brighten " + increment, sourceImage,
+        () -> PointOperation.brighten(increment)
+            .apply(sourceImage.getPackedRgb(), width, height, width));
 
-    ImageContent brightenedImage = new ImageContent(destImageName, brightenedRGBData);
-    IMAGE_MAP.put(destImageName, brightenedImage);
+    storeResult(destImageName, width, height, brightenedRGBData);
 
     System.out.println("Image brightening completed. Brightened image saved as " + destImageName);
   }
 
   private void sepiaImageHelper(String sourceName, String destName, int splitPercentage) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceName).getRgbDataMap();
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
-    int[][][] sepiaRGBData = new int[height][width][3];
-
-    int splitPosition = width * splitPercentage / 100;
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        if (splitPercentage == 0 || x <= splitPosition) {
-          int r = sourceRGBData[y][x][0];
-          int g = sourceRGBData[y][x][1];
-          int b = sourceRGBData[y][x][2];
-
-          int tr = (int) (0.393 * r + 0.769 * g + 0.189 * b);
-          int tg = (int) (0.349 * r + 0.686 * g + 0.168 * b);
-          int tb = (int) (0.272 * r + 0.534 * g + 0.131 * b);
-
-          tr = Math.min(255, Math.max(0, tr));
-          tg = Math.min(255, Math.max(0, tg));
-          tb = Math.min(255, Math.max(0, tb));
-
-          sepiaRGBData[y][x][0] = tr;
-          sepiaRGBData[y][x][1] = tg;
-          sepiaRGBData[y][x][2] = tb;
-        } else {
-          sepiaRGBData[y][x][0] = sourceRGBData[y][x][0];
-          sepiaRGBData[y][x][1] = sourceRGBData[y][x][1];
-          sepiaRGBData[y][x][2] = sourceRGBData[y][x][2];
-        }
-      }
-    }
-
-    createPPMContent(width, height, sepiaRGBData);
-
-    ImageContent sepiaImage = new ImageContent(destName, sepiaRGBData);
-    IMAGE_MAP.put(destName, sepiaImage);
-
-    System.out.println("Sepia filter applied with " + splitPercentage + "% split. Sepia-toned "
-            + "image saved as " + destName);
+    applyColorTransforms(sourceName,
+            Collections.singletonList(new ColorTransform("sepia", destName, splitPercentage)));
   }
 
-
   /**
    * Applies the sepia tone to a particular percentage of the source image depending on
    * the splitPercentage parameter passed, creating a split sepia image having both the operated
@@ -339,34 +480,39 @@ public class ImageModel implements ImageOperations {
   @Override
   public void combineRGBImages(String combinedName, String redName, String greenName,
                                String blueName) {
-    int[][][] redRGBData = IMAGE_MAP.get(redName).getRgbDataMap();
-    int[][][] greenRGBData = IMAGE_MAP.get(greenName).getRgbDataMap();
-    int[][][] blueRGBData = IMAGE_MAP.get(blueName).getRgbDataMap();
+    ImageContent redImage = imageStore.get(redName);
+    ImageContent greenImage = imageStore.get(greenName);
+    ImageContent blueImage = imageStore.get(blueName);
+    int[] redRGBData = redImage.getPackedRgb();
+    int[] greenRGBData = greenImage.getPackedRgb();
+    int[] blueRGBData = blueImage.getPackedRgb();
 
-    int height = redRGBData.length;
-    int width = redRGBData[0].length;
+    int height = redImage.getHeight();
+    int width = redImage.getWidth();
+    int greenWidth = greenImage.getWidth();
+    int blueWidth = blueImage.getWidth();
 
 
-    if (height != greenRGBData.length || height != blueRGBData.length
-            || width != greenRGBData[0].length || width != blueRGBData[0].length) {
+    if (height != greenImage.getHeight() || height != blueImage.getHeight()
+            || width != greenWidth || width != blueWidth) {
       System.out.print("Source images have different dimensions.");
 
     }
 
-    int[][][] combinedRGBData = new int[height][width][3];
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        combinedRGBData[y][x][0] = redRGBData[y][x][0];
-        combinedRGBData[y][x][1] = greenRGBData[y][x][1];
-        combinedRGBData[y][x][2] = blueRGBData[y][x][2];
-      }
-    }
-
-    createPPMContent(width, height, combinedRGBData);
+    int[] combinedRGBData = resultCache.computeIfAbsent("rgb-combine",
+        new ImageContent[]{redImage, greenImage, blueImage}, () -> {
+          int[] combined = new int[width * height];
+          for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+              combined[y * width + x] = (redRGBData[y * width + x] & 0xFF0000)
+                      | (greenRGBData[y * greenWidth + x] & 0x00FF00)
+                      | (blueRGBData[y * blueWidth + x] & 0x0000FF);
+            }
+          }
+          return new int[][]{combined};
+        })[0];
 
-    ImageContent combinedImage = new ImageContent(combinedName, combinedRGBData);
-    IMAGE_MAP.put(combinedName, combinedImage);
+    storeResult(combinedName, width, height, combinedRGBData);
     //rgbDataMap.put(combinedName, combinedRGBData);
 
     System.out.print("RGB channels combined. Combined image saved as " + combinedName);
@@ -386,45 +532,28 @@ public class ImageModel implements ImageOperations {
   @Override
   public void rgbSplitImage(String sourceName, String destNameRed, String destNameGreen,
                             String destNameBlue) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceName).getRgbDataMap();
-
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
-    int[][][] redRGBData = new int[height][width][3];
-    int[][][] greenRGBData = new int[height][width][3];
-    int[][][] blueRGBData = new int[height][width][3];
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int r = sourceRGBData[y][x][0];
-        int g = sourceRGBData[y][x][1];
-        int b = sourceRGBData[y][x][2];
-
-        redRGBData[y][x][0] = r;
-        redRGBData[y][x][1] = 0;
-        redRGBData[y][x][2] = 0;
-
-        greenRGBData[y][x][0] = 0;
-        greenRGBData[y][x][1] = g;
-        greenRGBData[y][x][2] = 0;
-
-        blueRGBData[y][x][0] = 0;
-        blueRGBData[y][x][1] = 0;
-        blueRGBData[y][x][2] = b;
-      }
-    }
-
-    createPPMContent(width, height, redRGBData);
-    createPPMContent(width, height, greenRGBData);
-    createPPMContent(width, height, blueRGBData);
-
-    ImageContent redImage = new ImageContent(destNameRed, redRGBData);
-    ImageContent greenImage = new ImageContent(destNameGreen, greenRGBData);
-    ImageContent blueImage = new ImageContent(destNameBlue, blueRGBData);
+    ImageContent sourceImage = imageStore.get(sourceName);
+
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
+    int[] sourceRGBData = sourceImage.getPackedRgb();
+    int[][] channels = resultCache.computeIfAbsent("rgb-split", new ImageContent[]{sourceImage},
+        () -> {
+          int[] redRGBData = new int[width * height];
+          int[] greenRGBData = new int[width * height];
+          int[] blueRGBData = new int[width * height];
+          for (int i = 0; i < sourceRGBData.length; i++) {
+            int rgb = sourceRGBData[i];
+            redRGBData[i] = rgb & 0xFF0000;
+            greenRGBData[i] = rgb & 0x00FF00;
+            blueRGBData[i] = rgb & 0x0000FF;
+          }
+          return new int[][]{redRGBData, greenRGBData, blueRGBData};
+        });
 
-    IMAGE_MAP.put(destNameRed, redImage);
-    IMAGE_MAP.put(destNameGreen, greenImage);
-    IMAGE_MAP.put(destNameBlue, blueImage);
+    storeResult(destNameRed, width, height, channels[0]);
+    storeResult(destNameGreen, width, height, channels[1]);
+    storeResult(destNameBlue, width, height, channels[2]);
 
 
     System.out.println("RGB channels split and saved as " + destNameRed + ", " + destNameGreen
@@ -432,26 +561,6 @@ public class ImageModel implements ImageOperations {
   }
 
 
-  private void createPPMContent(int width, int height, int[][][] rgbData) {
-    StringBuilder content;
-    content = new StringBuilder();
-    content.append("P3\n");
-    content.append(width).append(" ").append(height).append("\n");
-    content.append("255\n");
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = rgbData[i][j][0];
-        int g = rgbData[i][j][1];
-        int b = rgbData[i][j][2];
-        content.append(r).append(" ").append(g).append(" ").append(b).append(" ");
-      }
-      content.append("\n");
-    }
-
-  }
-
-
   /**
    * Extract a specific component from a source image and save it as a separate image.
    *
@@ -467,78 +576,37 @@ public class ImageModel implements ImageOperations {
    */
   private void extractComponentHelper(String sourceName, String destName, String component,
                                       int splitPercentage) {
-    boolean flag = true;
-
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceName).getRgbDataMap();
-
-    if (sourceRGBData != null) {
-      int height = sourceRGBData.length;
-      int width = sourceRGBData[0].length;
-
-      int[][][] extractedRGBData = new int[height][width][3];
-
-      int splitPosition = width * splitPercentage / 100;
-
-      for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-          int r = sourceRGBData[y][x][0];
-          int g = sourceRGBData[y][x][1];
-          int b = sourceRGBData[y][x][2];
-
-          switch (component) {
-            case "red":
-              g = 0;
-              b = 0;
-              break;
-            case "green":
-              r = 0;
-              b = 0;
-              break;
-            case "blue":
-              r = 0;
-              g = 0;
-              break;
-            case "luma":
-              if (x <= splitPosition || splitPercentage == 0) {
-                int luma = (int) (0.2126 * r + 0.7152 * g + 0.0722 * b);
-                r = luma;
-                g = luma;
-                b = luma;
-              }
-              break;
-            case "intensity":
-              int intensity = (r + g + b) / 3;
-              r = intensity;
-              g = intensity;
-              b = intensity;
-              break;
-            case "value":
-              int value = Math.max(r, Math.max(g, b));
-              r = value;
-              g = value;
-              b = value;
-              break;
-            default:
-              flag = false;
-              System.out.print("Invalid component parameter.");
-          }
-          extractedRGBData[y][x][0] = r;
-          extractedRGBData[y][x][1] = g;
-          extractedRGBData[y][x][2] = b;
-        }
-      }
-      if (flag) {
-        createPPMContent(width, height, extractedRGBData);
+    ImageContent sourceImage = imageStore.get(sourceName);
 
-        ImageContent destImage = new ImageContent(destName, extractedRGBData);
-        IMAGE_MAP.put(destName, destImage);
-        System.out.print(component + " component image created from '" + sourceName
-                + "' and saved as '" + destName + "'");
-
-      }
-    } else {
+    if (sourceImage == null) {
       System.out.println("Failed to extract the " + component + " component; invalid RGB data.");
+      return;
+    }
+
+    PointOperation channel = PointOperation.channel(component);
+    boolean grey = "luma".equals(component) || "intensity".equals(component)
+            || "value".equals(component);
+    if (channel == null && !grey) {
+      System.out.println("Invalid component parameter.");
+      return;
+    }
+
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
+    int[] sourceRGBData = sourceImage.getPackedRgb();
+
+    if (channel != null) {
+      // A single channel is a plain table lookup per pixel.
+      int[] extractedRGBData = cached("component " + component, sourceImage,
+          () -> channel.apply(sourceRGBData, width, height, width));
+      storeResult(destName, width, height, extractedRGBData);
+      System.out.print(component + " component image created from '" + sourceName
+              + "' and saved as '" + destName + "'");
+      return;
     }
+
+    applyColorTransforms(sourceName,
+            Collections.singletonList(new ColorTransform(component, destName, splitPercentage)));
   }
 
   @Override
@@ -555,12 +623,13 @@ public class ImageModel implements ImageOperations {
 
 
   /**
-   * Get a map of image names to their corresponding ImageContent objects.
+   * Get a map of image names to their corresponding ImageContent objects. The map is a live view
+   * of the store holding the images of this model.
    *
    * @return A map where keys are image names and values are the corresponding ImageContent objects.
    */
   public Map<String, ImageContent> getImageMap() {
-    return IMAGE_MAP;
+    return imageStore.asMap();
   }
 
   /**
@@ -570,84 +639,56 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public int[][][] getRgbDataMap(String imageName) {
-    return IMAGE_MAP.get(imageName).getRgbDataMap();
+    return imageStore.get(imageName).getRgbDataMap();
+  }
+
+  @Override
+  public ImageContent getImage(String imageName) {
+    return imageStore.get(imageName);
   }
 
   @Override
   public double[][] getPixels(String imageName) {
-    return IMAGE_MAP.get(imageName).getPixels();
+    return imageStore.get(imageName).getPixels();
   }
 
   private void colorCorrectImageHelper(String sourceName, String destName, int splitPercentage) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceName).getRgbDataMap();
+    ImageContent sourceImage = imageStore.get(sourceName);
 
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
+    int width = sourceImage.getWidth();
 
-    int[][][] colorCorrectedImage = new int[height][width][3];
+    // The peaks depend on the whole image, whatever the split.
+    int[] peaks = cached("color-correct peaks", sourceImage, () -> {
+      Histogram histogram = new Histogram(10, 245);
 
-    Histogram histogram = new Histogram(10, 245);
+      // Populate the histogram with values from the image data.
+      histogram.addValues(sourceImage.getPackedRgb());
 
-    // Populate the histogram with values from the image data.
-    for (int[][] sourceRGBDatum : sourceRGBData) {
-      for (int x = 0; x < width; x++) {
-        int redValue = sourceRGBDatum[x][0];
-        int greenValue = sourceRGBDatum[x][1];
-        int blueValue = sourceRGBDatum[x][2];
-        histogram.addValue(redValue, greenValue, blueValue);
-      }
-    }
+      // Calculate the max count across all channels.
+      histogram.calculateMaxCount();
 
-    // Calculate the max count across all channels.
-    histogram.calculateMaxCount();
-
-    // Find the peak values for each channel.
-    int peakR = histogram.findPeakValue(histogram.histogramR);
-    int peakG = histogram.findPeakValue(histogram.histogramG);
-    int peakB = histogram.findPeakValue(histogram.histogramB);
+      // Find the peak values for each channel.
+      return new int[]{histogram.findPeakValue(histogram.histogramR),
+          histogram.findPeakValue(histogram.histogramG),
+          histogram.findPeakValue(histogram.histogramB)};
+    });
+    int peakR = peaks[0];
+    int peakG = peaks[1];
+    int peakB = peaks[2];
 
     // Calculate the average value across peaks.
     int averagePeak = (peakR + peakG + peakB) / 3;
 
     System.out.println("Average Peak: " + averagePeak);
 
-    int splitPosition = width * splitPercentage / 100;
-
-    // Offset each channel's values so that their histogram peak occurs at the average value.
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int redValue = sourceRGBData[y][x][0];
-        int greenValue = sourceRGBData[y][x][1];
-        int blueValue = sourceRGBData[y][x][2];
-
-        if (splitPercentage == 0 || x <= splitPosition) {
-          // Offset the values
-          int offsetR = averagePeak - peakR;
-          int offsetG = averagePeak - peakG;
-          int offsetB = averagePeak - peakB;
-
-          // Apply offsets and ensure values stay within the valid range (10 to 245)
-          int correctedRed = Math.min(245, Math.max(10, redValue + offsetR));
-          int correctedGreen = Math.min(245, Math.max(10, greenValue + offsetG));
-          int correctedBlue = Math.min(245, Math.max(10, blueValue + offsetB));
-
-          colorCorrectedImage[y][x][0] = correctedRed;
-          colorCorrectedImage[y][x][1] = correctedGreen;
-          colorCorrectedImage[y][x][2] = correctedBlue;
-        } else {
-          colorCorrectedImage[y][x][0] = redValue;
-          colorCorrectedImage[y][x][1] = greenValue;
-          colorCorrectedImage[y][x][2] = blueValue;
-        }
-      }
-    }
-
-    // Create a StringBuilder for the corrected image content.
-    createPPMContent(width, height, colorCorrectedImage);
+    // Offset each channel's values so that their histogram peak occurs at the average value,
+    // keeping values within the valid range (10 to 245).
+    PointOperation offsets = PointOperation.offsets(averagePeak - peakR, averagePeak - peakG,
+            averagePeak - peakB, 10, 245);
 
     // Create and store the corrected image.
-    ImageContent correctedImage = new ImageContent(destName, colorCorrectedImage);
-    IMAGE_MAP.put(destName, correctedImage);
+    storePointOperation("color-correct " + Arrays.toString(peaks), offsets, sourceImage,
+            destName, splitColumns(width, splitPercentage));
     //rgbDataMap.put(destName, sourceRGBData);
     System.out.println("Color correction completed with " + splitPercentage + "% split. "
             + "Corrected " + "image saved as " + destName);
@@ -688,26 +729,20 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void createHistogram(String sourceName, String destName) {
-    Histogram histogram = new Histogram(0, 255);
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceName).getRgbDataMap();
-    histogram.createHistogram(sourceRGBData);
-    // Calculate the average value across peaks.
-    BufferedImage histogramImage = histogram.createHistogramImage(256, 256);
-    int width = histogramImage.getWidth();
-    int height = histogramImage.getHeight();
-
-    int[][][] imageRGBData = new int[height][width][3];
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int rgb = histogramImage.getRGB(x, y);
-        imageRGBData[y][x][0] = (rgb >> 16) & 0xFF;
-        imageRGBData[y][x][1] = (rgb >> 8) & 0xFF;
-        imageRGBData[y][x][2] = rgb & 0xFF;
+    int width = 256;
+    int height = 256;
+    ImageContent sourceImage = imageStore.get(sourceName);
+    int[] imageRGBData = cached("histogram", sourceImage, () -> {
+      Histogram histogram = new Histogram(0, 255);
+      histogram.createHistogram(sourceImage.getPackedRgb());
+      BufferedImage histogramImage = histogram.createHistogramImage(width, height);
+      int[] histogramRGBData = histogramImage.getRGB(0, 0, width, height, null, 0, width);
+      for (int i = 0; i < histogramRGBData.length; i++) {
+        histogramRGBData[i] &= 0xFFFFFF;
       }
-    }
-    ImageContent image = new ImageContent(destName, imageRGBData);
-    IMAGE_MAP.put(destName, image);
+      return histogramRGBData;
+    });
+    storeResult(destName, width, height, imageRGBData);
     System.out.println("Histogram of the image saved as " + destName);
   }
 
@@ -715,44 +750,12 @@ public class ImageModel implements ImageOperations {
   private void applyLevelsAdjustmentHelper(int shadowPoint, int midPoint, int highlightPoint,
                                            String sourceImageName, String destImageName,
                                            int splitPercentage) {
-    int[][][] sourceRGBData = IMAGE_MAP.get(sourceImageName).getRgbDataMap();
-
-    int width = sourceRGBData[0].length;
-    int height = sourceRGBData.length;
-
-    int[][][] adjustedRGBData = new int[height][width][3];
-
-    int splitPosition = width * splitPercentage / 100;
-
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int redValue = sourceRGBData[y][x][0];
-        int greenValue = sourceRGBData[y][x][1];
-        int blueValue = sourceRGBData[y][x][2];
-
-        if (splitPercentage == 0 || x <= splitPosition) {
-
-          int adjustedRed = applyCurvesFunction(redValue, shadowPoint, midPoint, highlightPoint);
-          int adjustedGreen = applyCurvesFunction(greenValue, shadowPoint, midPoint,
-                  highlightPoint);
-          int adjustedBlue = applyCurvesFunction(blueValue, shadowPoint, midPoint,
-                  highlightPoint);
-
-          adjustedRGBData[y][x][0] = adjustedRed;
-          adjustedRGBData[y][x][1] = adjustedGreen;
-          adjustedRGBData[y][x][2] = adjustedBlue;
-
-        } else {
-
-          adjustedRGBData[y][x][0] = redValue;
-          adjustedRGBData[y][x][1] = greenValue;
-          adjustedRGBData[y][x][2] = blueValue;
-        }
-      }
-    }
+    ImageContent sourceImage = imageStore.get(sourceImageName);
 
-    ImageContent adjustedImage = new ImageContent(destImageName, adjustedRGBData);
-    IMAGE_MAP.put(destImageName, adjustedImage);
+    int width = sourceImage.getWidth();
+    storePointOperation("levels " + shadowPoint + " " + midPoint + " " + highlightPoint,
+            PointOperation.levels(shadowPoint, midPoint, highlightPoint), sourceImage,
+            destImageName, splitColumns(width, splitPercentage));
 
     System.out.println("Adjusted image with " + splitPercentage + "% split. Image saved as "
             + destImageName);
@@ -792,25 +795,15 @@ public class ImageModel implements ImageOperations {
             destImageName, 0);
   }
 
-  private int applyCurvesFunction(int value, double shadowPoint, double midPoint, double
-          highlightPoint) {
-    double var = shadowPoint * shadowPoint * (midPoint - highlightPoint)
-            - shadowPoint * (midPoint * midPoint - highlightPoint * highlightPoint)
-            + midPoint * midPoint * highlightPoint
-            - midPoint * highlightPoint * highlightPoint;
-
-    double aA = -shadowPoint * (128 - 255) + 128 * highlightPoint - 255 * midPoint;
-    double aB = shadowPoint * shadowPoint * (128 - 255) + 255 * midPoint * midPoint - 128
-            * highlightPoint * highlightPoint;
-    double aC = shadowPoint * shadowPoint * (255 * midPoint - 128 * highlightPoint) - shadowPoint
-            * (255 * midPoint * midPoint - 128 * highlightPoint * highlightPoint);
-
-    double a = aA / var;
-    double b = aB / var;
-    double c = aC / var;
-
-    int adjustedValue = (int) (a * value * value + b * value + c);
-    return Math.min(255, Math.max(0, adjustedValue));
+  /**
+   * Returns the number of columns, counted from the left, that an operation with the given split
+   * percentage is applied to. The column at the split position itself is included.
+   */
+  private static int splitColumns(int width, int splitPercentage) {
+    if (splitPercentage == 0) {
+      return width;
+    }
+    return Math.min(width, width * splitPercentage / 100 + 1);
   }
 
 
@@ -823,56 +816,143 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void convertToGrayscale(String sourceName, String destName, int splitPercentage) {
-    ImageContent sourceImage = IMAGE_MAP.get(sourceName);
+    applyColorTransforms(sourceName,
+            Collections.singletonList(new ColorTransform("greyscale", destName,
+                    splitPercentage)));
+  }
 
-    int[][][] sourceRGBData = sourceImage.getRgbDataMap();
-    int height = sourceRGBData.length;
-    int width = sourceRGBData[0].length;
+  /**
+   * Apply a chain of color transformations in a single pass over the source image. Each step
+   * transforms the image produced by the step before it, and every intermediate image is stored
+   * under its own name, exactly as if the steps had been applied one after the other. A step
+   * without a name is fused into the chain: its result goes straight to the next step and is not
+   * stored.
+   *
+   * @param sourceName The name of the image the first step is applied to.
+   * @param transforms The steps of the chain, in order.
+   */
+  @Override
+  public void applyColorTransforms(String sourceName, List<ColorTransform> transforms) {
+    ImageContent sourceImage = imageStore.get(sourceName);
+    if (sourceImage == null) {
+      System.out.println("Source image not found: " + sourceName);
+      return;
+    }
 
-    int[][][] grayscalePixels = new int[height][width][3];
+    int height = sourceImage.getHeight();
+    int width = sourceImage.getWidth();
+
+    PixelOperation[] stages = new PixelOperation[transforms.size()];
+    int[] columns = new int[transforms.size()];
+    boolean[] stored = new boolean[transforms.size()];
+    StringBuilder operation = new StringBuilder("color-transforms");
+    for (int i = 0; i < stages.length; i++) {
+      ColorTransform transform = transforms.get(i);
+      stages[i] = colorOperation(transform);
+      if (stages[i] == null) {
+        System.out.println("Invalid color transformation: " + transform.getOperation());
+        return;
+      }
+      columns[i] = colorColumns(transform, width);
+      stored[i] = transform.getDestName() != null;
+      if (splitPreview && stages.length == 1) {
+        // The whole image is transformed once, and each split only picks its columns from it.
+        columns[i] = width;
+      }
+      operation.append(' ').append(transform.getOperation())
+              .append(Arrays.toString(transform.getParameters()))
+              .append(" columns=").append(columns[i]).append(stored[i] ? " stored" : "");
+    }
 
-    // Grayscale transformation matrix
-    double[][] grayscaleMatrix = {
-            {0.2126, 0.7152, 0.0722},
-            {0.2126, 0.7152, 0.0722},
-            {0.2126, 0.7152, 0.0722}
-    };
+    int[][] results = resultCache.computeIfAbsent(operation.toString(),
+        new ImageContent[]{sourceImage}, () -> new PixelPipeline(stages, columns)
+            .apply(sourceImage.getPackedRgb(), width, height, stored));
 
-    int splitPosition = width * splitPercentage / 100;
+    String stageSourceName = sourceName;
+    for (int i = 0; i < stages.length; i++) {
+      ColorTransform transform = transforms.get(i);
+      String destName = transform.getDestName();
+      if (destName == null) {
+        continue;
+      }
+      int splitColumns = colorColumns(transform, width);
+      if (splitColumns < columns[i]) {
+        storeView(destName, width, height, ImageView.composite(
+                new ImageContent(destName, width, height, results[i]), sourceImage, splitColumns));
+      } else {
+        storeResult(destName, width, height, results[i]);
+      }
 
-    // Convert color to grayscale using the specified transformation with vertical split
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int red = sourceRGBData[y][x][0];
-        int green = sourceRGBData[y][x][1];
-        int blue = sourceRGBData[y][x][2];
-
-        if (splitPercentage == 0 || x <= splitPosition) {
-          // Apply the specified transformation
-          int grayscaleValue = (int) (grayscaleMatrix[0][0] * red + grayscaleMatrix[0][1] * green
-                  + grayscaleMatrix[0][2] * blue);
-
-          // Set the same grayscale value for all channels
-          grayscalePixels[y][x][0] = grayscaleValue;
-          grayscalePixels[y][x][1] = grayscaleValue;
-          grayscalePixels[y][x][2] = grayscaleValue;
-
-        } else {
-          // Copy the original image data to the destination image for the other side
-          grayscalePixels[y][x][0] = red;
-          grayscalePixels[y][x][1] = green;
-          grayscalePixels[y][x][2] = blue;
-        }
+      switch (transform.getOperation()) {
+        case "sepia":
+          System.out.println("Sepia filter applied with " + transform.getSplitPercentage()
+                  + "% split. Sepia-toned image saved as " + destName);
+          break;
+        case "greyscale":
+          System.out.println("Grayscale image with " + transform.getSplitPercentage()
+                  + "% split saved as " + destName);
+          break;
+        case "brighten":
+          System.out.println("Image brightening completed. Brightened image saved as "
+                  + destName);
+          break;
+        case "levels":
+          System.out.println("Adjusted image with " + transform.getSplitPercentage()
+                  + "% split. Image saved as " + destName);
+          break;
+        default:
+          System.out.print(transform.getOperation() + " component image created from '"
+                  + stageSourceName + "' and saved as '" + destName + "'");
       }
+      stageSourceName = destName;
     }
+  }
 
-    // Create a new ImageContent with the grayscale pixels
-    ImageContent grayscaleImage = new ImageContent(destName, grayscalePixels);
-    IMAGE_MAP.put(destName, grayscaleImage);
+  private static PixelOperation colorOperation(ColorTransform transform) {
+    int[] parameters = transform.getParameters();
+    switch (transform.getOperation()) {
+      case "sepia":
+        return ColorMatrix.sepia();
+      case "greyscale":
+      case "luma":
+        return ColorMatrix.luma();
+      case "intensity":
+        return ColorMatrix.intensity();
+      case "value":
+        // The value of a pixel is its largest channel, which no matrix can express.
+        return rgb -> {
+          int value = Math.max((rgb >> 16) & 0xFF, Math.max((rgb >> 8) & 0xFF, rgb & 0xFF));
+          return ImageContent.pack(value, value, value);
+        };
+      case "red":
+      case "green":
+      case "blue":
+        return PointOperation.channel(transform.getOperation());
+      case "brighten":
+        return parameters.length == 1 ? PointOperation.brighten(parameters[0]) : null;
+      case "levels":
+        return parameters.length == 3
+                ? PointOperation.levels(parameters[0], parameters[1], parameters[2]) : null;
+      default:
+        return null;
+    }
+  }
 
-    // Store the grayscale image
-    System.out.println("Grayscale image with " + splitPercentage + "% split saved as "
-            + destName);
+  /**
+   * Returns the number of columns a step of a chain is applied to. Sepia, greyscale, luma and
+   * levels honour the split percentage; the other operations have always been applied to the
+   * whole image.
+   */
+  private static int colorColumns(ColorTransform transform, int width) {
+    switch (transform.getOperation()) {
+      case "sepia":
+      case "greyscale":
+      case "luma":
+      case "levels":
+        return splitColumns(width, transform.getSplitPercentage());
+      default:
+        return width;
+    }
   }
 
   /**
@@ -885,12 +965,38 @@ public class ImageModel implements ImageOperations {
    */
   @Override
   public void compress(String imageName, String destName, double compressionPercentage) {
-    int[][][] sourceRgb = IMAGE_MAP.get(imageName).getRgbDataMap();
-    Compression compressedImage = new Compression();
-    int[][][] imageRGBData = compressedImage.compress(sourceRgb, compressionPercentage);
+    compress(imageName, destName, compressionPercentage, 1, false);
+  }
+
+  /**
+   * Compresses the specified image with a multi-level Haar wavelet decomposition and saves the
+   * compressed image with the provided destination name.
+   *
+   * @param imageName             The name of the source image to be compressed.
+   * @param destName              The name to be assigned to the compressed image.
+   * @param compressionPercentage The percentage of compression to be applied to the image.
+   * @param levels                The number of levels, at least 1.
+   * @param floatPrecision        Whether to keep the wavelet coefficients in single precision.
+   */
+  @Override
+  public void compress(String imageName, String destName, double compressionPercentage,
+                       int levels, boolean floatPrecision) {
+    ImageContent sourceImage = imageStore.get(imageName);
+    boolean validPercentage = compressionPercentage >= 0 && compressionPercentage <= 100;
+    if (!validPercentage || sourceImage == null) {
+      if (!validPercentage) {
+        System.out.println("Compression percentage must be between 0 and 100.");
+      }
+      System.out.println("Error in compressing " + imageName + " by " + compressionPercentage
+              + " %");
+      return;
+    }
+    int[] imageRGBData = cached("compress " + compressionPercentage + " levels=" + levels
+            + (floatPrecision ? " float" : ""), sourceImage,
+        () -> new Compression(pool, levels, floatPrecision)
+            .compress(sourceImage, compressionPercentage));
     if (imageRGBData != null) {
-      ImageContent correctedImage = new ImageContent(destName, imageRGBData);
-      IMAGE_MAP.put(destName, correctedImage);
+      storeResult(destName, sourceImage.getWidth(), sourceImage.getHeight(), imageRGBData);
       System.out.println("Compress image with " + compressionPercentage + "% saved as " + destName);
     } else {
       System.out.println("Error in compressing " + imageName + " by " + compressionPercentage
@@ -899,4 +1005,5 @@ public class ImageModel implements ImageOperations {
 
   }
 
+
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package model;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * This interface represents the operations that can be performed on an image.
@@ -15,6 +16,13 @@ public interface ImageOperations {
    */
   void loadImageInMap(String imageName, int[][][] rgb) throws IOException;
 
+  /**
+   * Store an already decoded image in the image map under its own name.
+   *
+   * @param image The image to store.
+   */
+  void loadImageInMap(ImageContent image);
+
   /**
    * Flip an image horizontally and save it as a new image with the given name.
    *
@@ -71,6 +79,21 @@ public interface ImageOperations {
    */
   void blurImage(String sourceName, String destName);
 
+  /**
+   * Applies a Gaussian blur of the given radius and standard deviation to a particular percentage
+   * of the source image depending on the splitPercentage parameter passed, creating a split
+   * blurred image having both the operated image and the original image with the given name.
+   *
+   * @param sourceName      The name of the source image.
+   * @param destName        The name of the destination blurred image.
+   * @param splitPercentage The percentage of the image to be blurred.
+   * @param radius          The number of pixels on each side of a pixel that are blended in.
+   *                        Must be at least 1.
+   * @param sigma           The standard deviation of the Gaussian. Must be positive.
+   */
+  void blurImage(String sourceName, String destName, int splitPercentage, int radius,
+                 double sigma);
+
   /**
    * Brighten the colors of the source image by a specified increment and save the brightened
    * image with the given name.
@@ -164,6 +187,23 @@ public interface ImageOperations {
    */
   void compress(String imageName, String destName, double compressionThreshold);
 
+  /**
+   * Compresses the specified image with a multi-level Haar wavelet decomposition and saves the
+   * compressed image with the provided destination name. Each level after the first decomposes
+   * the averages of the level before it.
+   *
+   * @param imageName             The name of the source image to be compressed.
+   * @param destName              The name to be assigned to the compressed image.
+   * @param compressionPercentage The percentage of compression to be applied to the image.
+   * @param levels                The number of levels, at least 1. Levels beyond what the image
+   *                              size allows are ignored, so `Integer.MAX_VALUE` gives the full
+   *                              pyramid.
+   * @param floatPrecision        Whether to keep the wavelet coefficients in single precision,
+   *                              which halves the memory used while compressing.
+   */
+  void compress(String imageName, String destName, double compressionPercentage, int levels,
+                boolean floatPrecision);
+
   /**
    * Color-correct a part of the image depending on the splitPercentage parameter passed by
    * aligning the meaningful peaks of its histogram. The final image will have a part of color
@@ -225,6 +265,16 @@ public interface ImageOperations {
    */
   void convertToGrayscale(String sourceName, String destName, int splitPercentage);
 
+  /**
+   * Apply a chain of color transformations in a single pass over the source image. Each step
+   * transforms the image produced by the step before it and is stored under its own name, except
+   * for steps without a name, whose result is only passed on to the next step.
+   *
+   * @param sourceName The name of the image the first step is applied to.
+   * @param transforms The steps of the chain, in order.
+   */
+  void applyColorTransforms(String sourceName, List<ColorTransform> transforms);
+
   /**
    * Retrieves the RGB data of an image stored in the map, represented as a three-dimensional array.
    *
@@ -242,5 +292,13 @@ public interface ImageOperations {
    */
   double[][] getPixels(String imageName);
 
+  /**
+   * Retrieves an image stored in the map.
+   *
+   * @param imageName The name of the image.
+   * @return The image, or null if no image is stored under that name.
+   */
+  ImageContent getImage(String imageName);
+
 
 }
\ No newline at end of file
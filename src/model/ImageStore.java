@@ -0,0 +1,625 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The `ImageStore` class holds the images of an `ImageModel` by name, within a byte budget.
+ *
+ * <p>An image is kept for as long as it may be needed. A script can tell the store how many of
+ * its remaining commands read each image it produces; once those commands are done, the image
+ * is no longer needed and may be evicted when the store is over its budget, the least recently
+ * used first. Images the store was told nothing about, such as the images loaded in interactive
+ * mode or in the GUI, are never evicted.
+ *
+ * <p>When the images that are still needed do not fit in the budget either, the least recently
+ * used of them are spilled to disk: their pixels are written to a raw scratch file, one packed
+ * int per pixel in native byte order, and the file is memory-mapped to fault them back in the
+ * next time the image is requested. Since the pixels of an image never change, the scratch file
+ * is kept until the image is replaced or removed, so spilling the same image again costs nothing.
+ *
+ * <p>An image that is still an unmaterialized view of other images, such as a flip, only counts
+ * the pixels the view holds itself until it is materialized, which the view reports to the
+ * store. Before an image leaves memory, the views that read it are materialized, so the pixels
+ * of a spilled or evicted image are never kept alive by a view.
+ *
+ * <p>The store keeps the images in memory, and those of them that are no longer needed, in
+ * their own least-recently-used orders, along with the views reading each image, so that making
+ * room costs the same however many images are pinned or on disk.
+ */
+public final class ImageStore {
+
+  /**
+   * The budget of a store that never evicts anything.
+   */
+  public static final long UNBOUNDED = Long.MAX_VALUE;
+
+  /**
+   * The default budget of a store, in bytes of pixels.
+   */
+  public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+  /**
+   * Marks an image that is kept whatever the budget.
+   */
+  private static final int PINNED = -1;
+
+  private final long maxBytes;
+  private final Map<String, StoredImage> entries = new LinkedHashMap<>();
+  // The images in memory, and those of them no command reads any more, least recently used first.
+  private final Set<StoredImage> resident = new LinkedHashSet<>();
+  private final Set<StoredImage> unneeded = new LinkedHashSet<>();
+  // The views in memory that are not materialized yet, by the images they read.
+  private final Map<ImageContent, Set<StoredImage>> viewsOf = new IdentityHashMap<>();
+  // The views materialized since the store last counted their size, reported by the views.
+  private final Queue<StoredImage> materialized = new ConcurrentLinkedQueue<>();
+  private final Map<String, ImageContent> view = new MapView();
+  private final Path spillDirectory;
+  private Path scratchDirectory;
+  private long sizeInBytes;
+  private long evictions;
+  private long spills;
+  private long spilledBytes;
+  private long reloads;
+  private long reloadedBytes;
+  private long bytesOnDisk;
+
+  /**
+   * Constructs an empty store that spills to a scratch directory created in the default
+   * temporary-file directory when it is first needed.
+   *
+   * @param maxBytes The number of bytes of pixels the store keeps in memory. Images that are no
+   *                 longer needed are evicted first, then the others are spilled to disk.
+   */
+  public ImageStore(long maxBytes) {
+    this(maxBytes, null);
+  }
+
+  /**
+   * Constructs an empty store that spills to the given directory.
+   *
+   * @param maxBytes       The number of bytes of pixels the store keeps in memory. Images that
+   *                       are no longer needed are evicted first, then the others are spilled
+   *                       to disk.
+   * @param spillDirectory The directory in which the scratch files are created, or null for a
+   *                       new directory in the default temporary-file directory.
+   */
+  public ImageStore(long maxBytes, Path spillDirectory) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Store size cannot be negative");
+    }
+    this.maxBytes = maxBytes;
+    this.spillDirectory = spillDirectory;
+  }
+
+  /**
+   * Get an image by name. An image that was spilled to disk is read back into memory first.
+   *
+   * @param name The name of the image.
+   * @return The image, or null if there is no image with this name.
+   */
+  public synchronized ImageContent get(String name) {
+    StoredImage entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.image == null) {
+      reload(entry);
+      makeRoom(entry);
+    } else {
+      touch(entry);
+    }
+    return entry.image;
+  }
+
+  /**
+   * Checks whether there is an image with the given name.
+   *
+   * @param name The name of the image.
+   * @return True if the store holds an image with this name.
+   */
+  public synchronized boolean contains(String name) {
+    return entries.containsKey(name);
+  }
+
+  /**
+   * Stores an image under a name, replacing any image with the same name. The new image is kept
+   * whatever the budget until the store is told how many commands read it.
+   *
+   * @param name  The name of the image.
+   * @param image The image to store.
+   */
+  public synchronized void put(String name, ImageContent image) {
+    StoredImage entry = new StoredImage(name, image);
+    if (image.whenMaterialized(() -> materialized.add(entry))) {
+      ImageView imageView = image.getView();
+      if (imageView != null) {
+        entry.sources = imageView.sources();
+        for (ImageContent source : entry.sources) {
+          viewsOf.computeIfAbsent(source, key -> new HashSet<>()).add(entry);
+        }
+      }
+    }
+    entry.residentBytes = residentBytes(image);
+    sizeInBytes += entry.residentBytes;
+    resident.add(entry);
+    // Counted first, since the image it replaces may be one this view reads.
+    StoredImage previous = entries.put(name, entry);
+    if (previous != null) {
+      discard(previous);
+    }
+    makeRoom(entry);
+  }
+
+  /**
+   * Removes an image.
+   *
+   * @param name The name of the image.
+   * @return The removed image, or null if there was no image with this name.
+   */
+  public synchronized ImageContent remove(String name) {
+    StoredImage entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.image == null) {
+      reload(entry);
+    }
+    entries.remove(name);
+    discard(entry);
+    return entry.image;
+  }
+
+  /**
+   * Get the names of the images in the store.
+   *
+   * @return A copy of the names of the images.
+   */
+  public synchronized Set<String> names() {
+    return new LinkedHashSet<>(entries.keySet());
+  }
+
+  /**
+   * Keeps the given images whatever the budget, such as the images a script reads but does not
+   * create itself.
+   *
+   * @param names The names of the images to keep.
+   */
+  public synchronized void pin(Collection<String> names) {
+    for (String name : names) {
+      StoredImage entry = entries.get(name);
+      if (entry != null) {
+        setPendingReads(entry, PINNED);
+      }
+    }
+  }
+
+  /**
+   * Records that a command is done: each image it read has one reader less, and each image it
+   * produced has the given number of readers still to come. Images that no remaining command
+   * reads are evicted if the store is over its budget, and at once if they were spilled to disk.
+   *
+   * @param read     The names of the images the command read, each listed once.
+   * @param produced For every image the command produced, the number of remaining commands that
+   *                 read it.
+   */
+  public synchronized void updateReads(Collection<String> read, Map<String, Integer> produced) {
+    for (String name : read) {
+      StoredImage entry = entries.get(name);
+      if (entry != null && entry.pendingReads > 0 && !produced.containsKey(name)) {
+        setPendingReads(entry, entry.pendingReads - 1);
+        if (entry.pendingReads == 0 && entry.image == null) {
+          // A spilled image is only on disk because it was still needed.
+          entries.remove(name);
+          discard(entry);
+          evictions++;
+        }
+      }
+    }
+    for (Map.Entry<String, Integer> output : produced.entrySet()) {
+      StoredImage entry = entries.get(output.getKey());
+      if (entry != null) {
+        setPendingReads(entry, output.getValue());
+      }
+    }
+    makeRoom(null);
+  }
+
+  private void setPendingReads(StoredImage entry, int pendingReads) {
+    entry.pendingReads = pendingReads;
+    if (pendingReads == 0 && entry.image != null) {
+      unneeded.add(entry);
+    } else {
+      unneeded.remove(entry);
+    }
+  }
+
+  /**
+   * Marks an image in memory as the most recently used.
+   */
+  private void touch(StoredImage entry) {
+    if (resident.remove(entry)) {
+      resident.add(entry);
+    }
+    if (unneeded.remove(entry)) {
+      unneeded.add(entry);
+    }
+  }
+
+  /**
+   * Brings the images held in memory back within the budget: the least recently used images
+   * that are no longer needed are evicted first, then the least recently used of the others are
+   * spilled to disk. The given image, which is about to be used, stays in memory.
+   */
+  private void makeRoom(StoredImage keep) {
+    updateSizes();
+    StoredImage entry;
+    while (sizeInBytes > maxBytes && (entry = eldest(unneeded, keep)) != null) {
+      entries.remove(entry.name);
+      discard(entry);
+      evictions++;
+    }
+    // An image that cannot be spilled moves to the back, so each image is tried at most once.
+    for (int tries = resident.size(); sizeInBytes > maxBytes && tries > 0; tries--) {
+      entry = eldest(resident, keep);
+      if (entry == null) {
+        break;
+      }
+      if (!spill(entry)) {
+        touch(entry);
+      }
+    }
+  }
+
+  /**
+   * Get the least recently used of the given images other than the one to keep.
+   */
+  private static StoredImage eldest(Set<StoredImage> images, StoredImage keep) {
+    for (StoredImage entry : images) {
+      if (entry != keep) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the number of bytes of pixels an image holds in memory: all of its pixels once they are
+   * materialized, and only those its view holds itself before that.
+   */
+  private static long residentBytes(ImageContent image) {
+    ImageView imageView = image.getView();
+    return imageView == null ? 4L * image.getWidth() * image.getHeight()
+            : imageView.ownedBytes();
+  }
+
+  /**
+   * Accounts for the views that reported being materialized since their size was last counted,
+   * for example because a command read their pixels.
+   */
+  private void updateSizes() {
+    StoredImage entry;
+    while ((entry = materialized.poll()) != null) {
+      // Views that were replaced, removed or spilled since are no longer counted.
+      if (entry.image != null && entries.get(entry.name) == entry) {
+        recount(entry);
+      }
+    }
+  }
+
+  private void recount(StoredImage entry) {
+    long bytes = residentBytes(entry.image);
+    sizeInBytes += bytes - entry.residentBytes;
+    entry.residentBytes = bytes;
+    if (entry.image.isMaterialized()) {
+      forgetSources(entry);
+    }
+  }
+
+  /**
+   * Removes a view from the views of the images it reads.
+   */
+  private void forgetSources(StoredImage entry) {
+    for (ImageContent source : entry.sources) {
+      Set<StoredImage> views = viewsOf.get(source);
+      if (views != null) {
+        views.remove(entry);
+        if (views.isEmpty()) {
+          viewsOf.remove(source);
+        }
+      }
+    }
+    entry.sources = Collections.emptyList();
+  }
+
+  /**
+   * Materializes the images in memory that are still views reading the given image, so that
+   * they no longer keep its pixels alive once the store lets go of it.
+   */
+  private void materializeViewsOf(ImageContent image) {
+    Set<StoredImage> views = viewsOf.remove(image);
+    if (views != null) {
+      for (StoredImage entry : views) {
+        entry.image.getPackedRgb();
+        recount(entry);
+      }
+    }
+  }
+
+  /**
+   * Forgets an image that was removed from the store, along with its scratch file.
+   */
+  private void discard(StoredImage entry) {
+    if (entry.image != null) {
+      materializeViewsOf(entry.image);
+      forgetSources(entry);
+      sizeInBytes -= entry.residentBytes;
+      resident.remove(entry);
+      unneeded.remove(entry);
+    }
+    if (entry.spillFile != null) {
+      try {
+        Files.deleteIfExists(entry.spillFile);
+      } catch (IOException e) {
+        System.out.println("Could not delete scratch file: " + entry.spillFile);
+      }
+      bytesOnDisk -= entry.bytes();
+      entry.spillFile = null;
+    }
+  }
+
+  /**
+   * Moves the pixels of an image to its scratch file, writing the file if the image was not
+   * spilled before. An image that cannot be written stays in memory.
+   *
+   * @return False if the image could not be written.
+   */
+  private boolean spill(StoredImage entry) {
+    materializeViewsOf(entry.image);
+    if (entry.spillFile == null) {
+      if (entry.bytes() > Integer.MAX_VALUE) {
+        // A single mapping cannot hold the image.
+        return false;
+      }
+      try {
+        Path file = Files.createTempFile(scratchDirectory(), "image-", ".raw");
+        file.toFile().deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+          IntBuffer pixels = channel.map(FileChannel.MapMode.READ_WRITE, 0, entry.bytes())
+                  .order(ByteOrder.nativeOrder()).asIntBuffer();
+          pixels.put(entry.image.getPackedRgb());
+        }
+        entry.spillFile = file;
+        bytesOnDisk += entry.bytes();
+      } catch (IOException e) {
+        System.out.println("Could not spill image " + entry.imageName + " to disk: "
+                + e.getMessage());
+        return false;
+      }
+      spilledBytes += entry.bytes();
+    }
+    spills++;
+    forgetSources(entry);
+    entry.image = null;
+    sizeInBytes -= entry.residentBytes;
+    resident.remove(entry);
+    unneeded.remove(entry);
+    return true;
+  }
+
+  /**
+   * Reads the pixels of a spilled image back from its scratch file.
+   */
+  private void reload(StoredImage entry) {
+    int[] pixels = new int[entry.width * entry.height];
+    try (FileChannel channel = FileChannel.open(entry.spillFile, StandardOpenOption.READ)) {
+      channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.bytes())
+              .order(ByteOrder.nativeOrder()).asIntBuffer().get(pixels);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read image " + entry.imageName
+              + " back from disk", e);
+    }
+    entry.image = new ImageContent(entry.imageName, entry.width, entry.height, pixels);
+    entry.residentBytes = entry.bytes();
+    sizeInBytes += entry.residentBytes;
+    resident.add(entry);
+    if (entry.pendingReads == 0) {
+      unneeded.add(entry);
+    }
+    reloads++;
+    reloadedBytes += entry.bytes();
+  }
+
+  private Path scratchDirectory() throws IOException {
+    if (scratchDirectory == null) {
+      if (spillDirectory != null) {
+        scratchDirectory = spillDirectory;
+      } else {
+        scratchDirectory = Files.createTempDirectory("imageops-spill");
+        // Registered before the files, so it is deleted after them.
+        scratchDirectory.toFile().deleteOnExit();
+      }
+    }
+    return scratchDirectory;
+  }
+
+  /**
+   * Get the number of bytes of pixels the store holds in memory.
+   *
+   * @return The size of the images in memory in bytes.
+   */
+  public synchronized long getSizeInBytes() {
+    updateSizes();
+    return sizeInBytes;
+  }
+
+  /**
+   * Get the budget of the store.
+   *
+   * @return The number of bytes above which unneeded images are evicted.
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Get the number of images evicted to keep the store within its budget.
+   *
+   * @return The number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Get the number of times an image was moved out of memory to disk.
+   *
+   * @return The number of spills.
+   */
+  public synchronized long getSpills() {
+    return spills;
+  }
+
+  /**
+   * Get the number of bytes written to scratch files.
+   *
+   * @return The bytes spilled to disk.
+   */
+  public synchronized long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  /**
+   * Get the number of times a spilled image was read back into memory.
+   *
+   * @return The number of reloads.
+   */
+  public synchronized long getReloads() {
+    return reloads;
+  }
+
+  /**
+   * Get the number of bytes read back from scratch files.
+   *
+   * @return The bytes reloaded from disk.
+   */
+  public synchronized long getReloadedBytes() {
+    return reloadedBytes;
+  }
+
+  /**
+   * Get the number of bytes of the scratch files the store currently keeps.
+   *
+   * @return The size of the scratch files in bytes.
+   */
+  public synchronized long getBytesOnDisk() {
+    return bytesOnDisk;
+  }
+
+  /**
+   * Get a live map view of the store, from image names to images.
+   *
+   * @return The map view.
+   */
+  public Map<String, ImageContent> asMap() {
+    return view;
+  }
+
+  /**
+   * An image and the number of commands that still read it, or {@link #PINNED}. The image is
+   * null while it is only on disk. The sources are the images read by a view that is not
+   * materialized yet.
+   */
+  private static final class StoredImage {
+
+    private final String name;
+    private final String imageName;
+    private final int width;
+    private final int height;
+    private ImageContent image;
+    private long residentBytes;
+    private List<ImageContent> sources = Collections.emptyList();
+    private Path spillFile;
+    private int pendingReads = PINNED;
+
+    StoredImage(String name, ImageContent image) {
+      this.name = name;
+      this.imageName = image.getName();
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      this.image = image;
+    }
+
+    /**
+     * Get the size of all the pixels of the image, as written to its scratch file.
+     */
+    long bytes() {
+      return 4L * width * height;
+    }
+  }
+
+  /**
+   * The map view of the store. Its key set and entry set are copies taken when they are
+   * requested; the entry set reads every spilled image back into memory.
+   */
+  private final class MapView extends AbstractMap<String, ImageContent> {
+
+    @Override
+    public ImageContent get(Object key) {
+      return key instanceof String ? ImageStore.this.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && contains((String) key);
+    }
+
+    @Override
+    public ImageContent put(String key, ImageContent value) {
+      synchronized (ImageStore.this) {
+        ImageContent previous = ImageStore.this.get(key);
+        ImageStore.this.put(key, value);
+        return previous;
+      }
+    }
+
+    @Override
+    public ImageContent remove(Object key) {
+      return key instanceof String ? ImageStore.this.remove((String) key) : null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return Collections.unmodifiableSet(names());
+    }
+
+    @Override
+    public Set<Map.Entry<String, ImageContent>> entrySet() {
+      synchronized (ImageStore.this) {
+        Map<String, ImageContent> copy = new LinkedHashMap<>();
+        for (String name : names()) {
+          copy.put(name, ImageStore.this.get(name));
+        }
+        return Collections.unmodifiableMap(copy).entrySet();
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The `ImageView` class describes the pixels of an image in terms of other images, without
+ * copying them. An `ImageContent` built on a view only materializes its pixels, one row at a
+ * time, the first time they are requested, for example when the image is saved or another
+ * operation reads it. Until then, creating the image costs O(1) whatever its size.
+ *
+ * <p>Views only ever read from the images they refer to, which is safe because the pixels of an
+ * image are never modified.
+ */
+abstract class ImageView {
+
+  /**
+   * Copies one row of the viewed pixels.
+   *
+   * @param y          The row to copy.
+   * @param dest       The array to copy the row to.
+   * @param destOffset The index in the array of the first pixel of the row.
+   */
+  abstract void copyRow(int y, int[] dest, int destOffset);
+
+  /**
+   * Get the number of bytes of pixels held by the view itself, not counting the images it reads.
+   *
+   * @return The size of the pixels owned by the view in bytes.
+   */
+  abstract long ownedBytes();
+
+  /**
+   * Get the images whose pixels the view reads.
+   *
+   * @return The images the view refers to.
+   */
+  abstract List<ImageContent> sources();
+
+  /**
+   * Copies all the viewed pixels into a new array.
+   *
+   * @param width  The width of the view.
+   * @param height The height of the view.
+   * @return The packed pixels in row-major order.
+   */
+  int[] materialize(int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      copyRow(y, pixels, y * width);
+    }
+    return pixels;
+  }
+
+  /**
+   * Creates the view of an image flipped horizontally, vertically or both. Flipping an image
+   * that is itself an unmaterialized flip of another image gives a single view of that other
+   * image, so a chain of flips never copies anything.
+   *
+   * @param source     The image to flip.
+   * @param horizontal Whether to mirror the columns.
+   * @param vertical   Whether to mirror the rows.
+   * @return The flipped view.
+   */
+  static ImageView flipped(ImageContent source, boolean horizontal, boolean vertical) {
+    ImageView sourceView = source.getView();
+    if (sourceView instanceof Flipped) {
+      Flipped flip = (Flipped) sourceView;
+      return new Flipped(flip.source, flip.horizontal != horizontal, flip.vertical != vertical);
+    }
+    return new Flipped(source, horizontal, vertical);
+  }
+
+  /**
+   * Creates the view made of the first columns of one image and the remaining columns of
+   * another, as produced by an operation applied with a split.
+   *
+   * @param left    The image whose first columns are shown. It is either as wide as the view,
+   *                or exactly as wide as the given column count.
+   * @param right   The image whose remaining columns are shown, as large as the view.
+   * @param columns The number of columns, counted from the left, taken from the left image.
+   * @return The composite view.
+   */
+  static ImageView composite(ImageContent left, ImageContent right, int columns) {
+    return new Composite(left, right, columns);
+  }
+
+  /**
+   * An image mirrored along one or both axes.
+   */
+  private static final class Flipped extends ImageView {
+
+    private final ImageContent source;
+    private final boolean horizontal;
+    private final boolean vertical;
+
+    Flipped(ImageContent source, boolean horizontal, boolean vertical) {
+      this.source = source;
+      this.horizontal = horizontal;
+      this.vertical = vertical;
+    }
+
+    @Override
+    void copyRow(int y, int[] dest, int destOffset) {
+      int width = source.getWidth();
+      int sourceY = vertical ? source.getHeight() - 1 - y : y;
+      int[] pixels = source.getPackedRgb();
+      int rowOffset = sourceY * width;
+      if (horizontal) {
+        for (int x = 0; x < width; x++) {
+          dest[destOffset + x] = pixels[rowOffset + width - x - 1];
+        }
+      } else {
+        System.arraycopy(pixels, rowOffset, dest, destOffset, width);
+      }
+    }
+
+    @Override
+    long ownedBytes() {
+      return 0;
+    }
+
+    @Override
+    List<ImageContent> sources() {
+      return Collections.singletonList(source);
+    }
+  }
+
+  /**
+   * The first columns of one image next to the remaining columns of another. Each row is two
+   * bulk copies.
+   */
+  private static final class Composite extends ImageView {
+
+    private final ImageContent left;
+    private final ImageContent right;
+    private final int columns;
+
+    Composite(ImageContent left, ImageContent right, int columns) {
+      this.left = left;
+      this.right = right;
+      this.columns = columns;
+    }
+
+    @Override
+    void copyRow(int y, int[] dest, int destOffset) {
+      int width = right.getWidth();
+      System.arraycopy(left.getPackedRgb(), y * left.getWidth(), dest, destOffset, columns);
+      System.arraycopy(right.getPackedRgb(), y * width + columns, dest, destOffset + columns,
+              width - columns);
+    }
+
+    @Override
+    long ownedBytes() {
+      // The left columns are computed for the view alone, the right ones belong to the source.
+      return 4L * left.getWidth() * left.getHeight();
+    }
+
+    @Override
+    List<ImageContent> sources() {
+      return Arrays.asList(left, right);
+    }
+  }
+}
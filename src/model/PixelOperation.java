@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * The `PixelOperation` interface represents an operation whose result for a pixel depends only
+ * on the value of that pixel. Such operations can be chained and evaluated in a single pass over
+ * an image.
+ */
+interface PixelOperation {
+
+  /**
+   * Map a single packed pixel to its new value.
+   *
+   * @param rgb The packed `0x00RRGGBB` pixel.
+   * @return The packed result pixel.
+   */
+  int applyToPixel(int rgb);
+}
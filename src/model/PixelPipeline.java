@@ -0,0 +1,105 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The `PixelPipeline` class evaluates a chain of pixel operations in a single pass over an
+ * image. Every stage reads the output of the stage before it for the same pixel, so the source
+ * image is read once and the result of each stage is written once, without materializing a
+ * stage before the next one starts.
+ */
+final class PixelPipeline {
+
+  private final PixelOperation[] stages;
+  private final int[] columns;
+
+  /**
+   * Constructs a `PixelPipeline` from its stages.
+   *
+   * @param stages  The operations in the order they are applied.
+   * @param columns For each stage, the number of columns, counted from the left, it is applied
+   *                to. Pixels to the right are passed on unchanged.
+   */
+  PixelPipeline(PixelOperation[] stages, int[] columns) {
+    if (stages.length != columns.length) {
+      throw new IllegalArgumentException("Every stage needs a column count");
+    }
+    this.stages = stages.clone();
+    this.columns = columns.clone();
+  }
+
+  /**
+   * Run every stage over the image.
+   *
+   * @param source The packed pixels of the source image.
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @return The packed pixels produced by each stage, in stage order.
+   */
+  int[][] apply(int[] source, int width, int height) {
+    boolean[] stored = new boolean[stages.length];
+    Arrays.fill(stored, true);
+    return apply(source, width, height, stored);
+  }
+
+  /**
+   * Run every stage over the image, keeping the result of the chosen stages only. The result of
+   * any other stage is only passed on to the next one, so a chain whose last stage alone is
+   * kept reads and writes every pixel once.
+   *
+   * <p>The columns of a row are split into segments at the column counts of the stages, so
+   * every stage is either applied to a whole segment or skips it. A stage only ever runs over
+   * the columns it transforms, and the pixels it passes on unchanged are bulk copies.
+   *
+   * @param source The packed pixels of the source image.
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @param stored For each stage, whether its result is kept.
+   * @return The packed pixels produced by each stage, in stage order, or null for the stages
+   *         whose result is not kept.
+   */
+  int[][] apply(int[] source, int width, int height, boolean[] stored) {
+    int[][] results = new int[stages.length][];
+    for (int stage = 0; stage < stages.length; stage++) {
+      results[stage] = stored[stage] ? new int[width * height] : null;
+    }
+    int[] bounds = segmentBounds(width);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      int rowOffset = y * width;
+      for (int segment = 0; segment + 1 < bounds.length; segment++) {
+        int start = bounds[segment];
+        int length = bounds[segment + 1] - start;
+        System.arraycopy(source, rowOffset + start, row, 0, length);
+        for (int stage = 0; stage < stages.length; stage++) {
+          if (columns[stage] > start) {
+            PixelOperation operation = stages[stage];
+            for (int x = 0; x < length; x++) {
+              row[x] = operation.applyToPixel(row[x]);
+            }
+          }
+          if (results[stage] != null) {
+            System.arraycopy(row, 0, results[stage], rowOffset + start, length);
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Splits the columns of a row into the segments over which the same stages are applied.
+   *
+   * @param width The width of the image.
+   * @return The first column of each segment, in order, followed by the width.
+   */
+  private int[] segmentBounds(int width) {
+    int[] bounds = new int[columns.length + 2];
+    bounds[0] = 0;
+    bounds[1] = width;
+    for (int stage = 0; stage < columns.length; stage++) {
+      bounds[stage + 2] = Math.min(width, Math.max(0, columns[stage]));
+    }
+    return Arrays.stream(bounds).sorted().distinct().toArray();
+  }
+}
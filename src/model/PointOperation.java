@@ -0,0 +1,193 @@
+package model;
+
+/**
+ * The `PointOperation` class represents an operation that maps every channel value of a pixel
+ * to a new value independently of the other channels and of the neighbouring pixels. The
+ * operation is compiled once into a 256-entry lookup table per channel, so applying it to an
+ * image costs three table lookups per pixel.
+ */
+final class PointOperation implements PixelOperation {
+
+  private final int[] redTable;
+  private final int[] greenTable;
+  private final int[] blueTable;
+
+  /**
+   * Constructs a `PointOperation` from one table per channel. Each table must have 256 entries
+   * between 0 and 255.
+   *
+   * @param redTable   The new value of every red value.
+   * @param greenTable The new value of every green value.
+   * @param blueTable  The new value of every blue value.
+   */
+  PointOperation(int[] redTable, int[] greenTable, int[] blueTable) {
+    // Pre-shift the entries so a pixel is rebuilt by or-ing the three lookups together.
+    this.redTable = shifted(redTable, 16);
+    this.greenTable = shifted(greenTable, 8);
+    this.blueTable = shifted(blueTable, 0);
+  }
+
+  private static int[] shifted(int[] table, int shift) {
+    if (table.length != 256) {
+      throw new IllegalArgumentException("A lookup table must have 256 entries");
+    }
+    int[] result = new int[256];
+    for (int i = 0; i < 256; i++) {
+      result[i] = (table[i] & 0xFF) << shift;
+    }
+    return result;
+  }
+
+  @Override
+  public int applyToPixel(int rgb) {
+    return redTable[(rgb >> 16) & 0xFF] | greenTable[(rgb >> 8) & 0xFF] | blueTable[rgb & 0xFF];
+  }
+
+  /**
+   * Apply the operation to the first columns of an image. Pixels to the right of the given
+   * column count are copied from the source unchanged.
+   *
+   * @param source  The packed pixels of the source image.
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param columns The number of columns, counted from the left, to transform.
+   * @return The packed pixels of the resulting image.
+   */
+  int[] apply(int[] source, int width, int height, int columns) {
+    int[] result = new int[width * height];
+    columns = Math.min(width, Math.max(0, columns));
+    for (int y = 0; y < height; y++) {
+      int rowOffset = y * width;
+      for (int x = rowOffset; x < rowOffset + columns; x++) {
+        int rgb = source[x];
+        result[x] = redTable[(rgb >> 16) & 0xFF] | greenTable[(rgb >> 8) & 0xFF]
+                | blueTable[rgb & 0xFF];
+      }
+      System.arraycopy(source, rowOffset + columns, result, rowOffset + columns,
+              width - columns);
+    }
+    return result;
+  }
+
+  /**
+   * Apply the operation to the first columns of an image only, without copying the rest.
+   *
+   * @param source  The packed pixels of the source image.
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param columns The number of columns, counted from the left, to transform.
+   * @return The packed pixels of the transformed columns, as an image that is the given number
+   *         of columns wide.
+   */
+  int[] applyToColumns(int[] source, int width, int height, int columns) {
+    columns = Math.min(width, Math.max(0, columns));
+    int[] result = new int[columns * height];
+    for (int y = 0; y < height; y++) {
+      int rowOffset = y * width;
+      int resultOffset = y * columns;
+      for (int x = 0; x < columns; x++) {
+        int rgb = source[rowOffset + x];
+        result[resultOffset + x] = redTable[(rgb >> 16) & 0xFF]
+                | greenTable[(rgb >> 8) & 0xFF] | blueTable[rgb & 0xFF];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates the operation that adds the same increment to every channel, clamping the result
+   * to the range 0 to 255.
+   *
+   * @param increment The amount to add. Negative values darken.
+   * @return The brighten operation.
+   */
+  static PointOperation brighten(int increment) {
+    int[] table = new int[256];
+    for (int value = 0; value < 256; value++) {
+      table[value] = Math.min(255, Math.max(0, value + increment));
+    }
+    return new PointOperation(table, table, table);
+  }
+
+  /**
+   * Creates the operation that adds a separate offset to each channel, clamping the result to
+   * the given range.
+   *
+   * @param redOffset   The offset added to the red channel.
+   * @param greenOffset The offset added to the green channel.
+   * @param blueOffset  The offset added to the blue channel.
+   * @param min         The smallest value a channel may take after the offset.
+   * @param max         The largest value a channel may take after the offset.
+   * @return The offset operation.
+   */
+  static PointOperation offsets(int redOffset, int greenOffset, int blueOffset, int min,
+                                int max) {
+    int[] redTable = new int[256];
+    int[] greenTable = new int[256];
+    int[] blueTable = new int[256];
+    for (int value = 0; value < 256; value++) {
+      redTable[value] = Math.min(max, Math.max(min, value + redOffset));
+      greenTable[value] = Math.min(max, Math.max(min, value + greenOffset));
+      blueTable[value] = Math.min(max, Math.max(min, value + blueOffset));
+    }
+    return new PointOperation(redTable, greenTable, blueTable);
+  }
+
+  /**
+   * Creates the levels adjustment that fits a quadratic curve through the shadow, mid and
+   * highlight points, mapping them to 0, 128 and 255 respectively. The coefficients of the
+   * curve are computed once for the whole table.
+   *
+   * @param shadowPoint    The shadow point.
+   * @param midPoint       The mid-point.
+   * @param highlightPoint The highlight point.
+   * @return The levels adjustment operation.
+   */
+  static PointOperation levels(double shadowPoint, double midPoint, double highlightPoint) {
+    double var = shadowPoint * shadowPoint * (midPoint - highlightPoint)
+            - shadowPoint * (midPoint * midPoint - highlightPoint * highlightPoint)
+            + midPoint * midPoint * highlightPoint
+            - midPoint * highlightPoint * highlightPoint;
+
+    double aA = -shadowPoint * (128 - 255) + 128 * highlightPoint - 255 * midPoint;
+    double aB = shadowPoint * shadowPoint * (128 - 255) + 255 * midPoint * midPoint - 128
+            * highlightPoint * highlightPoint;
+    double aC = shadowPoint * shadowPoint * (255 * midPoint - 128 * highlightPoint) - shadowPoint
+            * (255 * midPoint * midPoint - 128 * highlightPoint * highlightPoint);
+
+    double a = aA / var;
+    double b = aB / var;
+    double c = aC / var;
+
+    int[] table = new int[256];
+    for (int value = 0; value < 256; value++) {
+      int adjustedValue = (int) (a * value * value + b * value + c);
+      table[value] = Math.min(255, Math.max(0, adjustedValue));
+    }
+    return new PointOperation(table, table, table);
+  }
+
+  /**
+   * Creates the operation that keeps a single channel and sets the other two to zero.
+   *
+   * @param component The channel to keep, one of "red", "green" or "blue".
+   * @return The extraction operation, or null if the component is not a single channel.
+   */
+  static PointOperation channel(String component) {
+    int[] identity = new int[256];
+    for (int value = 0; value < 256; value++) {
+      identity[value] = value;
+    }
+    int[] zero = new int[256];
+    switch (component) {
+      case "red":
+        return new PointOperation(identity, zero, zero);
+      case "green":
+        return new PointOperation(zero, identity, zero);
+      case "blue":
+        return new PointOperation(zero, zero, identity);
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The `ResultCache` class remembers the pixels produced by image operations, keyed by the content
+ * of the source images and by the operation with its parameters, such as
+ * {@code (hash(img), "blur", split=0)}. Applying the same operation to an image with the same
+ * pixels again, whatever its name, returns the remembered pixels instead of computing them.
+ *
+ * <p>Each entry keeps the pixels of its sources, and a cached result is only returned when the
+ * sources it is requested for have the same pixels, so two images whose hashes collide never
+ * share a result.
+ *
+ * <p>The cache holds at most a given number of bytes of pixels, counting both the results and
+ * the sources they keep. When it is full, the entries that were used least recently are evicted
+ * first. The cached arrays are shared with the images built from them, which is safe because
+ * the pixels of an image are never modified.
+ */
+public final class ResultCache {
+
+  /**
+   * The default bound of a cache, in bytes of pixels.
+   */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private final long maxBytes;
+  private final LinkedHashMap<Key, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeInBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param maxBytes The largest number of bytes of pixels the cache holds. A bound of 0 disables
+   *                 the cache.
+   */
+  public ResultCache(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the pixels an operation produced from the given source images, computing and
+   * remembering them if they are not cached. The computation runs outside the lock of the cache,
+   * so different operations can be computed at the same time.
+   *
+   * @param operation The operation with all the parameters its result depends on.
+   * @param sources   The images the operation reads.
+   * @param compute   Computes the results of the operation, one array per image it produces.
+   *                  A null result is returned as is and not cached.
+   * @return The results of the operation.
+   */
+  int[][] computeIfAbsent(String operation, ImageContent[] sources, Supplier<int[][]> compute) {
+    Key key = new Key(operation, sources);
+    int[][] sourcePixels = new int[sources.length][];
+    for (int i = 0; i < sources.length; i++) {
+      sourcePixels[i] = sources[i].getPackedRgb();
+    }
+    synchronized (this) {
+      CachedResult cached = entries.get(key);
+      if (cached != null && cached.hasSources(sourcePixels)) {
+        hits++;
+        return cached.results;
+      }
+      misses++;
+    }
+
+    int[][] results = compute.get();
+    if (results != null) {
+      put(key, new CachedResult(sourcePixels, results));
+    }
+    return results;
+  }
+
+  private synchronized void put(Key key, CachedResult result) {
+    long bytes = result.sizeInBytes();
+    if (bytes > maxBytes) {
+      return;
+    }
+    CachedResult previous = entries.put(key, result);
+    if (previous != null) {
+      sizeInBytes -= previous.sizeInBytes();
+    }
+    sizeInBytes += bytes;
+
+    Iterator<Map.Entry<Key, CachedResult>> eldest = entries.entrySet().iterator();
+    while (sizeInBytes > maxBytes) {
+      Map.Entry<Key, CachedResult> entry = eldest.next();
+      sizeInBytes -= entry.getValue().sizeInBytes();
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  private static long sizeOf(int[][] arrays) {
+    long bytes = 0;
+    for (int[] array : arrays) {
+      if (array != null) {
+        bytes += 4L * array.length;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Get the number of requests that were answered from the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of requests that had to be computed.
+   *
+   * @return The number of cache misses.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Get the number of entries evicted to keep the cache within its bound.
+   *
+   * @return The number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Get the number of bytes of pixels the cache currently holds.
+   *
+   * @return The size of the cached results in bytes.
+   */
+  public synchronized long getSizeInBytes() {
+    return sizeInBytes;
+  }
+
+  /**
+   * Get the largest number of bytes of pixels the cache holds.
+   *
+   * @return The bound of the cache in bytes.
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Removes every cached result. The counters are kept.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    sizeInBytes = 0;
+  }
+
+  /**
+   * The results of an operation together with the pixels of the sources they were computed from.
+   */
+  private static final class CachedResult {
+
+    private final int[][] sources;
+    private final int[][] results;
+
+    CachedResult(int[][] sources, int[][] results) {
+      this.sources = sources;
+      this.results = results;
+    }
+
+    /**
+     * Checks that the given sources have the pixels these results were computed from. Sources
+     * sharing their arrays with the cached ones match without comparing any pixel.
+     */
+    boolean hasSources(int[][] pixels) {
+      for (int i = 0; i < sources.length; i++) {
+        if (sources[i] != pixels[i] && !Arrays.equals(sources[i], pixels[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    long sizeInBytes() {
+      return sizeOf(sources) + sizeOf(results);
+    }
+  }
+
+  /**
+   * Identifies the result of an operation by the operation and the content of its sources.
+   */
+  private static final class Key {
+
+    private final String operation;
+    private final long[] sources;
+    private final int[] dimensions;
+
+    Key(String operation, ImageContent[] images) {
+      this.operation = operation;
+      this.sources = new long[images.length];
+      this.dimensions = new int[2 * images.length];
+      for (int i = 0; i < images.length; i++) {
+        sources[i] = images[i].getContentHash();
+        dimensions[2 * i] = images[i].getWidth();
+        dimensions[2 * i + 1] = images[i].getHeight();
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return operation.equals(key.operation) && Arrays.equals(sources, key.sources)
+              && Arrays.equals(dimensions, key.dimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * operation.hashCode() + Arrays.hashCode(sources);
+    }
+  }
+}
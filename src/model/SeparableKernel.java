@@ -0,0 +1,148 @@
+package model;
+
+/**
+ * The `SeparableKernel` class represents a square convolution kernel that is the outer product
+ * of a vertical and a horizontal one-dimensional kernel. Such a kernel can be applied as a
+ * horizontal pass followed by a vertical pass, which costs 2r + 1 taps per pixel and channel
+ * for each pass instead of (2r + 1)^2 taps for the full kernel.
+ */
+final class SeparableKernel {
+
+  private final float[] horizontal;
+  private final float[] vertical;
+
+  /**
+   * Constructs a `SeparableKernel` from its two one-dimensional factors.
+   *
+   * @param horizontal The kernel applied along each row.
+   * @param vertical   The kernel applied along each column.
+   */
+  SeparableKernel(float[] horizontal, float[] vertical) {
+    if (horizontal.length != vertical.length || horizontal.length % 2 == 0) {
+      throw new IllegalArgumentException("Separable kernel factors must have the same odd "
+              + "length");
+    }
+    this.horizontal = horizontal.clone();
+    this.vertical = vertical.clone();
+  }
+
+  /**
+   * Get the kernel applied along each row.
+   *
+   * @return The horizontal factor of the kernel.
+   */
+  float[] getHorizontal() {
+    return horizontal;
+  }
+
+  /**
+   * Get the kernel applied along each column.
+   *
+   * @return The vertical factor of the kernel.
+   */
+  float[] getVertical() {
+    return vertical;
+  }
+
+  /**
+   * Get the radius of the kernel, which is the number of taps on each side of the centre.
+   *
+   * @return The radius of the kernel.
+   */
+  int getRadius() {
+    return horizontal.length / 2;
+  }
+
+  /**
+   * Creates a normalized Gaussian blurring kernel.
+   *
+   * @param radius The number of taps on each side of the centre. Must be at least 1.
+   * @param sigma  The standard deviation of the Gaussian. Must be positive.
+   * @return The separable Gaussian kernel.
+   */
+  static SeparableKernel gaussian(int radius, double sigma) {
+    if (radius < 1 || !(sigma > 0)) {
+      throw new IllegalArgumentException("Blur radius must be at least 1 and sigma must be "
+              + "positive");
+    }
+    double[] weights = new double[2 * radius + 1];
+    double total = 0;
+    for (int i = -radius; i <= radius; i++) {
+      weights[i + radius] = Math.exp(-(i * i) / (2 * sigma * sigma));
+      total += weights[i + radius];
+    }
+    float[] factor = new float[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      factor[i] = (float) (weights[i] / total);
+    }
+    return new SeparableKernel(factor, factor);
+  }
+
+  /**
+   * Splits a square kernel into its horizontal and vertical factors. A kernel is only reported
+   * as separable if every entry is exactly the product of its factors and both factors are made
+   * of powers of two close enough together that every partial sum of the two passes is exact
+   * for 8-bit input. The two passes then produce the same output as the full kernel. This holds
+   * for the 3x3 Gaussian kernel.
+   *
+   * @param kernel The square kernel in row-major order.
+   * @return The factors of the kernel, or null if the kernel is not exactly separable.
+   */
+  static SeparableKernel detect(float[] kernel) {
+    int size = (int) Math.sqrt(kernel.length);
+    if (size * size != kernel.length || size % 2 == 0) {
+      return null;
+    }
+    int centre = size / 2;
+    float centreValue = kernel[centre * size + centre];
+    if (centreValue == 0) {
+      return null;
+    }
+
+    float[] horizontal = new float[size];
+    float[] vertical = new float[size];
+    for (int i = 0; i < size; i++) {
+      horizontal[i] = kernel[centre * size + i] / centreValue;
+      vertical[i] = kernel[i * size + centre];
+    }
+    for (int ky = 0; ky < size; ky++) {
+      for (int kx = 0; kx < size; kx++) {
+        if (vertical[ky] * horizontal[kx] != kernel[ky * size + kx]) {
+          return null;
+        }
+      }
+    }
+
+    // Bits needed by the sums of one pass: 8 bits of input, the spread of the exponents of the
+    // weights and the carries of adding up to `size` terms.
+    int sumBits = 32 - Integer.numberOfLeadingZeros(size - 1);
+    int horizontalSpread = exponentSpread(horizontal);
+    int verticalSpread = exponentSpread(vertical);
+    if (horizontalSpread < 0 || verticalSpread < 0
+            || 8 + horizontalSpread + verticalSpread + 2 * sumBits > 24) {
+      return null;
+    }
+    return new SeparableKernel(horizontal, vertical);
+  }
+
+  /**
+   * Returns the difference between the largest and smallest exponent of the non-zero weights,
+   * or -1 if some weight is not a signed power of two.
+   */
+  private static int exponentSpread(float[] weights) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (float weight : weights) {
+      if (weight == 0) {
+        continue;
+      }
+      int exponent = Math.getExponent(weight);
+      if (Math.abs(weight) != Math.scalb(1.0f, exponent)) {
+        return -1;
+      }
+      min = Math.min(min, exponent);
+      max = Math.max(max, exponent);
+    }
+    return max < min ? 0 : max - min;
+  }
+}
@@ -10,7 +10,14 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import javax.swing.JPanel;
 import javax.swing.JLabel;
@@ -27,6 +34,8 @@ import javax.swing.BoxLayout;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import controller.ControllerFeatures;
@@ -73,6 +82,20 @@ public class ImageEditorView extends JFrame {
   private boolean applySplitFilter = true;
   private int action = 0;
 
+  /**
+   * The task run by the current thread, if it is one of the background tasks of a view. The
+   * images a task passes to updateImageForIndex are published through it.
+   */
+  private static final ThreadLocal<RenderTask> CURRENT_TASK = new ThreadLocal<>();
+
+  // Runs the requests to the controller one at a time, in the order they were made.
+  private final ExecutorService renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "image-render");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private RenderTask latestFilter;
+
   /**
    * Constructs an instance of the ImageEditorView class, initializing the GUI components,
    * layout, and event handlers.
@@ -261,6 +284,17 @@ public class ImageEditorView extends JFrame {
     // Create a scaled version of the image
     Image scaledImage = image.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
 
+    RenderTask task = CURRENT_TASK.get();
+    if (task != null) {
+      task.show(scaledImage, index);
+    } else if (SwingUtilities.isEventDispatchThread()) {
+      showImage(scaledImage, index);
+    } else {
+      SwingUtilities.invokeLater(() -> showImage(scaledImage, index));
+    }
+  }
+
+  private void showImage(Image scaledImage, int index) {
     imageLabel[index].setIcon(new ImageIcon(scaledImage));
     imageLabel[index].setText(null);
     // Repaint the components
@@ -379,7 +413,6 @@ public class ImageEditorView extends JFrame {
       if (allowOpen) {
         String openCommand = openFile();
         if (openCommand != null && !openCommand.equals("error")) {
-          features.loadImage(openCommand, "img");
           //features.applyFeatures(null, "img");
           sourceName = "img";
           destName = "img";
@@ -390,9 +423,10 @@ public class ImageEditorView extends JFrame {
 
           imageLabel[1].setIcon(new ImageIcon("path/to/placeholder-image.png"));
           //imageLabel[1].setText("Please upload image");
-          JOptionPane.showMessageDialog(ImageEditorView.this,
-                  "Image loaded successfully!",
-                  "Success", JOptionPane.INFORMATION_MESSAGE);
+          runInBackground(() -> features.loadImage(openCommand, "img"),
+              () -> JOptionPane.showMessageDialog(ImageEditorView.this,
+                      "Image loaded successfully!",
+                      "Success", JOptionPane.INFORMATION_MESSAGE));
         } else if (openCommand == null || !openCommand.equals("error")) {
           JOptionPane.showMessageDialog(ImageEditorView.this,
                   "Please load an image before applying a filter.",
@@ -453,7 +487,7 @@ public class ImageEditorView extends JFrame {
           System.out.println("source:" + destName);
           System.out.println("source:" + splitImageName);
           System.out.println("source:" + filteredImgName);
-          features.applyFeatures(null, sourceName);
+          applyInBackground(features, null, sourceName, false);
         } else {
           JOptionPane.showMessageDialog(ImageEditorView.this,
                   "Please enter valid values.",
@@ -472,10 +506,10 @@ public class ImageEditorView extends JFrame {
       String saveCommand = saveFile();
       if (saveCommand != null && !saveCommand.equals("error")) {
 
-        features.saveImage(saveCommand);
-        JOptionPane.showMessageDialog(ImageEditorView.this,
-                "Processed Image is saved.",
-                "Success", JOptionPane.INFORMATION_MESSAGE);
+        runInBackground(() -> features.saveImage(saveCommand),
+            () -> JOptionPane.showMessageDialog(ImageEditorView.this,
+                    "Processed Image is saved.",
+                    "Success", JOptionPane.INFORMATION_MESSAGE));
       }
       command = null;
 
@@ -494,7 +528,7 @@ public class ImageEditorView extends JFrame {
       System.out.println("source:" + destName);
       System.out.println("source:" + splitImageName);
       System.out.println("source:" + filteredImgName);
-      features.applyFeatures(filterCommand, tempName);
+      applyInBackground(features, filterCommand, tempName, true);
 
     });
 
@@ -532,7 +566,7 @@ public class ImageEditorView extends JFrame {
                 System.out.println("%%" + destName);
 
                 if (!Objects.equals(filterCommand, "error")) {
-                  features.applyFeatures(filterCommand, splitImageName);
+                  applyInBackground(features, filterCommand, splitImageName, false);
                 }
               } else {
                 sliderValue = 0;
@@ -540,7 +574,7 @@ public class ImageEditorView extends JFrame {
                 sliderPanel.setVisible(false);
 
                 filterCommand = filterOptions(true);
-                features.applyFeatures(filterCommand, filteredImgName);
+                applyInBackground(features, filterCommand, filteredImgName, false);
               }
             } else {
               JOptionPane.showMessageDialog(ImageEditorView.this,
@@ -573,7 +607,7 @@ public class ImageEditorView extends JFrame {
         splitImageName = selectedFilter + "Split";
         filterCommand = filterOptions(true);
         if (!Objects.equals(filterCommand, "error")) {
-          features.applyFeatures(filterCommand, splitImageName);
+          applyInBackground(features, filterCommand, splitImageName, false);
           JOptionPane.showMessageDialog(ImageEditorView.this,
                   "Slide Arrow to view the changes!",
                   "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -604,7 +638,7 @@ public class ImageEditorView extends JFrame {
         arrowSlider.setValue(0);
         sliderPanel.setVisible(false);
         filterCommand = filterOptions(true);
-        features.applyFeatures(filterCommand, filteredImgName);
+        applyInBackground(features, filterCommand, filteredImgName, false);
 
       } else {
         JOptionPane.showMessageDialog(ImageEditorView.this,
@@ -615,6 +649,149 @@ public class ImageEditorView extends JFrame {
 
   }
 
+  /**
+   * Applies a filter in the background and shows its result once it is done, unless a newer
+   * request was made in the meantime. Requests run one at a time in the order they were made.
+   * A newer request cancels the filter if nothing reads the image it produces first: when the
+   * filter is a preview, such as the split shown while the slider moves, or when the newer
+   * request is a filter that overwrites the same image without reading it. A cancelled filter
+   * that has not started is skipped, and a running one stops at its next band of rows or range
+   * of values without storing its result. Any other filter still runs, because later requests
+   * may read its result, but it no longer updates the display.
+   *
+   * @param features      The controller to apply the filter with.
+   * @param command       The command applying the filter, or null to only show an image.
+   * @param destImageName The name of the image to show.
+   * @param preview       Whether the request is a preview that can be skipped.
+   */
+  private void applyInBackground(ControllerFeatures features, String command,
+                                 String destImageName, boolean preview) {
+    RenderTask task = new RenderTask(
+        cancelled -> features.applyFeatures(command, destImageName, cancelled), null, preview,
+        command == null ? null : sourceName, command == null ? null : destImageName);
+    supersede(task);
+    latestFilter = task;
+    renderExecutor.execute(task);
+  }
+
+  /**
+   * Runs a request other than a filter, such as loading or saving an image, in the background
+   * after the requests made before it.
+   *
+   * @param request  The request to the controller.
+   * @param whenDone What to do on the Event Dispatch Thread once the request is done.
+   */
+  private void runInBackground(Runnable request, Runnable whenDone) {
+    RenderTask task = new RenderTask(cancelled -> request.run(), whenDone, false, null, null);
+    supersede(task);
+    renderExecutor.execute(task);
+  }
+
+  private void supersede(RenderTask next) {
+    if (latestFilter != null) {
+      latestFilter.supersede(next);
+      latestFilter = null;
+    }
+  }
+
+  /**
+   * A request to the controller run on the render thread. The images it shows are published
+   * back to the Event Dispatch Thread, where they are dropped once the request is superseded.
+   */
+  private final class RenderTask extends SwingWorker<Void, RenderTask.Frame> {
+
+    private final Consumer<BooleanSupplier> request;
+    private final Runnable whenDone;
+    private final boolean preview;
+    private final String readsImage;
+    private final String writesImage;
+    private boolean superseded;
+
+    /**
+     * Constructs a request.
+     *
+     * @param request     The request, given the condition under which it is abandoned.
+     * @param whenDone    What to do on the Event Dispatch Thread once the request is done, or
+     *                    null.
+     * @param preview     Whether nothing reads the image the request produces.
+     * @param readsImage  The image a filter reads, or null if the request is not a filter.
+     * @param writesImage The image a filter produces, or null if the request is not a filter.
+     */
+    RenderTask(Consumer<BooleanSupplier> request, Runnable whenDone, boolean preview,
+               String readsImage, String writesImage) {
+      this.request = request;
+      this.whenDone = whenDone;
+      this.preview = preview;
+      this.readsImage = readsImage;
+      this.writesImage = writesImage;
+    }
+
+    void show(Image image, int index) {
+      publish(new Frame(image, index));
+    }
+
+    void supersede(RenderTask next) {
+      superseded = true;
+      if (preview || next.overwrites(writesImage)) {
+        // Never interrupts the render thread, a running filter checks isCancelled itself.
+        cancel(false);
+      }
+    }
+
+    /**
+     * Checks whether this request is a filter that replaces the given image without reading it.
+     */
+    private boolean overwrites(String image) {
+      return image != null && image.equals(writesImage) && !image.equals(readsImage);
+    }
+
+    @Override
+    protected Void doInBackground() {
+      CURRENT_TASK.set(this);
+      try {
+        request.accept(this::isCancelled);
+      } finally {
+        CURRENT_TASK.remove();
+      }
+      return null;
+    }
+
+    @Override
+    protected void process(List<Frame> frames) {
+      if (superseded) {
+        return;
+      }
+      for (Frame frame : frames) {
+        showImage(frame.image, frame.index);
+      }
+    }
+
+    @Override
+    protected void done() {
+      try {
+        get();
+      } catch (CancellationException e) {
+        return;
+      } catch (InterruptedException | ExecutionException e) {
+        e.printStackTrace();
+        return;
+      }
+      if (whenDone != null) {
+        whenDone.run();
+      }
+    }
+
+    private final class Frame {
+      private final Image image;
+      private final int index;
+
+      Frame(Image image, int index) {
+        this.image = image;
+        this.index = index;
+      }
+    }
+  }
+
   private String openFile() {
     command = null;
     final JFileChooser fchooser = new JFileChooser(".");
@@ -847,4 +1024,4 @@ public class ImageEditorView extends JFrame {
     return command;
   }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
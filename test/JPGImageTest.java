@@ -623,7 +623,7 @@ public class JPGImageTest {
     // Create a new image content to save
 
 
-    Controller controller = new Controller(reader);
+    Controller controller = new Controller(reader, pngJpgImage);
     // Save the image
     controller.saveImage("save " + imageName + " " + imagePath);
 
@@ -640,9 +640,7 @@ public class JPGImageTest {
 
     pngJpgImage.extractComponent(imageName, "destName", "invalidComponent");
 
-    String expectedErrorMessage = "Invalid component parameter."
-            + "Invalid component parameter.Invalid component parameter."
-            + "Invalid component parameter.";
+    String expectedErrorMessage = "Invalid component parameter.";
 
     assertEquals(expectedErrorMessage, outContent.toString().trim());
   }
@@ -672,7 +670,7 @@ public class JPGImageTest {
   @Test
   public void testSaveImageWithInvalidPath() throws IOException {
     String invalidPath = "invalid_path/invalid_file.ppm";
-    Controller controller = new Controller(reader);
+    Controller controller = new Controller(reader, pngJpgImage);
     controller.saveImage("save " + invalidPath + " " + imageName);
 
     String expectedErrorMessage = "Error in saving File";
@@ -684,7 +682,7 @@ public class JPGImageTest {
   @Test
   public void testSaveImageWithInvalidFilename() {
     String invalidFilename = "bac#";
-    Controller img = new Controller(reader);
+    Controller img = new Controller(reader, pngJpgImage);
     img.saveImage("save " + imagePath + " " + invalidFilename);
 
     String expectedErrorMessage = "Image not found: bac#";
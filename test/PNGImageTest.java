@@ -693,7 +693,7 @@ public class PNGImageTest {
   @Test
   public void testSaveImage() throws IOException {
     // Create a new image content to save
-    Controller img = new Controller(reader);
+    Controller img = new Controller(reader, pngJpgImage);
     img.saveImage("save 'output.png' img");
 
     File savedFile = new File(imagePath);
@@ -709,9 +709,7 @@ public class PNGImageTest {
 
     pngJpgImage.extractComponent(imageName, "destName", "invalidComponent");
 
-    String expectedErrorMessage = "Invalid component parameter."
-            + "Invalid component parameter.Invalid component parameter."
-            + "Invalid component parameter.";
+    String expectedErrorMessage = "Invalid component parameter.";
 
     assertEquals(expectedErrorMessage, outContent.toString().trim());
   }
@@ -759,7 +757,7 @@ public class PNGImageTest {
   @Test
   public void testSaveImageWithInvalidPath() throws IOException {
     String invalidPath = "invalid_path/invalid_file.ppm";
-    Controller img = new Controller(reader);
+    Controller img = new Controller(reader, pngJpgImage);
     img.saveImage("save " + invalidPath + " img");
 
     String expectedErrorMessage = "Error in saving File";
@@ -771,7 +769,7 @@ public class PNGImageTest {
   @Test
   public void testSaveImageWithInvalidFilename() {
     String invalidFilename = "bac#";
-    Controller img = new Controller(reader);
+    Controller img = new Controller(reader, pngJpgImage);
     img.saveImage("save 'output.png' " + invalidFilename);
 
     String expectedErrorMessage = "Image not found: bac#";
@@ -699,7 +699,7 @@ public class PPMImageTest {
     // Create a new image content to save
 
 
-    Controller controller = new Controller(reader);
+    Controller controller = new Controller(reader, ppmImage);
     // Save the image
     controller.saveImage("save " + imagePath + " " + imageName);
 
@@ -716,9 +716,7 @@ public class PPMImageTest {
 
     ppmImage.extractComponent(imageName, "destName", "invalidComponent");
 
-    String expectedErrorMessage = "Invalid component parameter."
-            + "Invalid component parameter.Invalid component parameter."
-            + "Invalid component parameter.";
+    String expectedErrorMessage = "Invalid component parameter.";
 
     assertEquals(expectedErrorMessage, outContent.toString().trim());
   }
@@ -768,7 +766,7 @@ public class PPMImageTest {
   @Test
   public void testSaveImageWithInvalidPath() {
     String invalidPath = "invalid_path/invalid_file.ppm";
-    Controller controller = new Controller(reader);
+    Controller controller = new Controller(reader, ppmImage);
     controller.saveImage("save " + invalidPath + " " + imageName);
 
     String expectedErrorMessage = "Error in saving File";
@@ -780,7 +778,7 @@ public class PPMImageTest {
   @Test
   public void testSaveImageWithInvalidFilename() {
     String invalidFilename = "bac#";
-    Controller controller = new Controller(reader);
+    Controller controller = new Controller(reader, ppmImage);
     controller.saveImage("save " + imagePath + " " + invalidFilename);
 
     String expectedErrorMessage = "Image not found: bac#";
@@ -12,6 +12,8 @@ import org.junit.Test;
 import javax.imageio.ImageIO;
 
 import model.ImageModel;
+import model.ImageStore;
+import model.ResultCache;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
@@ -19,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -55,14 +58,18 @@ public class ControllerTest {
 
   @Before
   public void setUp() {
-    pngJpgImage = new ImageModel();
+    // The controller works on its own model, which sees the images of the test model.
+    ImageStore store = new ImageStore(ImageStore.UNBOUNDED);
+    pngJpgImage = new ImageModel(ForkJoinPool.commonPool(),
+            new ResultCache(ResultCache.DEFAULT_MAX_BYTES), store);
     createAndSaveJPG(originalMatrix, imageName, imagePath);
 
     createAndSaveJPG(rgbMatrix3, image3Name, image3Path);
 
     System.setOut(new PrintStream(outContent));
 
-    controller = new Controller(reader);
+    controller = new Controller(reader, new ImageModel(ForkJoinPool.commonPool(),
+            new ResultCache(ResultCache.DEFAULT_MAX_BYTES), store));
 
   }
 
@@ -38,10 +38,10 @@ public class ControllerViewTest {
   public void setUp() {
     mockView = new MockImageEditorView();
     Reader reader = new InputStreamReader(System.in);
-    Controller controller = new Controller(reader);
+    pngJpgImage = new ImageModel();
+    Controller controller = new Controller(reader, pngJpgImage);
     //controller = new Controller(reader);
     controller.setView(mockView);
-    pngJpgImage = new ImageModel();
     createAndSavePNG(rgbMatrix, imageName, imagePath);
   }
 
@@ -0,0 +1,188 @@
+package controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.ImageContent;
+
+/**
+ * The `PPMFormatTest` class contains JUnit tests for reading and writing plain and binary PPM
+ * files.
+ */
+public class PPMFormatTest {
+
+  private final int[] pixels = {0xFF0000, 0x00FF00, 0x0000FF, 0x102030, 0xFFFFFF, 0x000000};
+
+  private Path tempFile() throws IOException {
+    Path path = Files.createTempFile("ppm-format", ".ppm");
+    path.toFile().deleteOnExit();
+    return path;
+  }
+
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+    Path path = tempFile();
+    PPMFormat.writeBinary(path, new ImageContent("img", 3, 2, pixels));
+
+    assertTrue(PPMFormat.isBinary(path));
+    assertEquals(11 + 18, Files.size(path));
+    ImageContent image = PPMFormat.readBinary(path, "copy");
+    assertEquals("copy", image.getName());
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertArrayEquals(pixels, image.getPackedRgb());
+  }
+
+  @Test
+  public void testHeaderWithComments() throws IOException {
+    Path path = tempFile();
+    byte[] header = "P6\n# a comment\n2 1\n# another\n255\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] samples = {1, 2, 3, (byte) 250, (byte) 251, (byte) 252};
+    byte[] file = new byte[header.length + samples.length];
+    System.arraycopy(header, 0, file, 0, header.length);
+    System.arraycopy(samples, 0, file, header.length, samples.length);
+    Files.write(path, file);
+
+    assertArrayEquals(new int[]{0x010203, 0xFAFBFC},
+            PPMFormat.readBinary(path, "img").getPackedRgb());
+  }
+
+  private static byte[] binaryFile(String header, byte[] samples) {
+    byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+    byte[] file = new byte[headerBytes.length + samples.length];
+    System.arraycopy(headerBytes, 0, file, 0, headerBytes.length);
+    System.arraycopy(samples, 0, file, headerBytes.length, samples.length);
+    return file;
+  }
+
+  private static int scale16(int sample) {
+    return (sample * 255 + 65535 / 2) / 65535;
+  }
+
+  @Test
+  public void testSixteenBitSamplesAreScaled() throws IOException {
+    Path path = tempFile();
+    // 32768, 65535 and 25700 (100 * 257) out of 65535, then 0, 7 and 1000.
+    byte[] samples = {(byte) 0x80, 0, (byte) 0xFF, (byte) 0xFF, 0x64, 0x64,
+                      0, 0, 0, 7, 0x03, (byte) 0xE8};
+    Files.write(path, binaryFile("P6 2 1 65535\n", samples));
+
+    assertArrayEquals(new int[]{0x80FF64, 0x000004},
+            PPMFormat.readBinary(path, "img").getPackedRgb());
+  }
+
+  @Test
+  public void testSamplesAreScaledFromASmallMaximum() throws IOException {
+    Path path = tempFile();
+    // 15, 8 and 0 out of 15, with a sample above the maximum read as the maximum.
+    Files.write(path, binaryFile("P6 2 1 15\n", new byte[]{15, 8, 0, 1, 20, 7}));
+    assertArrayEquals(new int[]{0xFF8800, 0x11FF77},
+            PPMFormat.readBinary(path, "img").getPackedRgb());
+
+    Files.write(path, "P3\n2 1\n100\n100 50 0 1 150 -3\n".getBytes(StandardCharsets.US_ASCII));
+    assertArrayEquals(new int[]{0xFF8000, 0x03FF00},
+            PPMFormat.readPlain(path, "img").getPackedRgb());
+  }
+
+  @Test
+  public void testRowsLargerThanTheReadBuffer() throws IOException {
+    Path path = tempFile();
+    StringBuilder comment = new StringBuilder("# ");
+    for (int i = 0; i < 70000; i++) {
+      comment.append('c');
+    }
+    byte[] samples = new byte[12000 * 2 * 6];
+    int[] expected = new int[12000 * 2];
+    for (int i = 0; i < expected.length; i++) {
+      int[] rgb = {(i * 37) & 0xFFFF, (i * 101) & 0xFFFF, 65535 - ((i * 37) & 0xFFFF)};
+      for (int c = 0; c < 3; c++) {
+        samples[i * 6 + c * 2] = (byte) (rgb[c] >> 8);
+        samples[i * 6 + c * 2 + 1] = (byte) rgb[c];
+      }
+      expected[i] = ImageContent.pack(scale16(rgb[0]), scale16(rgb[1]), scale16(rgb[2]));
+    }
+    Files.write(path, binaryFile("P6\n" + comment + "\n12000 2\n65535\n", samples));
+
+    ImageContent image = PPMFormat.readBinary(path, "img");
+    assertArrayEquals(expected, image.getPackedRgb());
+
+    // The file is not held open once it is read, so the image can be saved over it.
+    PPMFormat.writeBinary(path, image);
+    assertArrayEquals(expected, PPMFormat.readBinary(path, "copy").getPackedRgb());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedFile() throws IOException {
+    Path path = tempFile();
+    Files.write(path, "P6\n2 2\n255\n\u0001\u0002".getBytes(StandardCharsets.US_ASCII));
+
+    PPMFormat.readBinary(path, "img");
+  }
+
+  @Test
+  public void testPlainFileIsNotBinary() throws IOException {
+    Path path = tempFile();
+    Files.write(path, "P3\n1 1\n255\n1 2 3\n".getBytes(StandardCharsets.US_ASCII));
+
+    assertFalse(PPMFormat.isBinary(path));
+  }
+
+  @Test
+  public void testPlainFileWithInlineComments() throws IOException {
+    Path path = tempFile();
+    Files.write(path, ("P3 # plain\n# size\n2 1 # w h\n255\n1 2 3   # first\n"
+            + "300 -4 +7\n").getBytes(StandardCharsets.US_ASCII));
+
+    ImageContent image = PPMFormat.read(path, "img");
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertArrayEquals(new int[]{0x010203, 0xFF0007}, image.getPackedRgb());
+  }
+
+  @Test
+  public void testPlainFileWithoutTrailingNewline() throws IOException {
+    Path path = tempFile();
+    Files.write(path, "P3\r\n1 1\r\n255\r\n10 20 30".getBytes(StandardCharsets.US_ASCII));
+
+    assertArrayEquals(new int[]{0x0A141E}, PPMFormat.read(path, "img").getPackedRgb());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedPlainFile() throws IOException {
+    Path path = tempFile();
+    Files.write(path, "P3\n2 1\n255\n1 2 3 4\n".getBytes(StandardCharsets.US_ASCII));
+
+    PPMFormat.read(path, "img");
+  }
+
+  @Test
+  public void testPlainRoundTrip() throws IOException {
+    Path path = tempFile();
+    PPMFormat.writePlain(path, new ImageContent("img", 3, 2, pixels));
+
+    assertEquals("P3\n3 2\n255\n255 0 0 0 255 0 0 0 255 \n16 32 48 255 255 255 0 0 0 \n",
+            new String(Files.readAllBytes(path), StandardCharsets.US_ASCII));
+    assertArrayEquals(pixels, PPMFormat.read(path, "copy").getPackedRgb());
+  }
+
+  @Test
+  public void testPlainWriteLargerThanBuffer() throws IOException {
+    Path path = tempFile();
+    int[] large = new int[300 * 200];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (int) (i * 2654435761L) & 0xFFFFFF;
+    }
+    PPMFormat.writePlain(path, new ImageContent("img", 300, 200, large));
+
+    assertArrayEquals(large, PPMFormat.read(path, "copy").getPackedRgb());
+  }
+}
@@ -0,0 +1,100 @@
+package controller;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * The `PPMReadBenchmark` class measures how fast plain PPM files are read by the streaming
+ * tokenizer of `PPMFormat`, compared to the `Scanner` based reader it replaced. It is run by
+ * hand rather than as part of the tests.
+ *
+ * <p>Usage: `java controller.PPMReadBenchmark [width] [height] [rounds]`
+ */
+public class PPMReadBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The optional width and height of the generated image and number of rounds.
+   * @throws IOException If the temporary file cannot be written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    Path path = Files.createTempFile("ppm-benchmark", ".ppm");
+    try {
+      writePlain(path, width, height);
+      double megabytes = Files.size(path) / (1024.0 * 1024.0);
+      System.out.printf("%dx%d plain PPM, %.1f MB%n", width, height, megabytes);
+
+      for (int round = 0; round < rounds; round++) {
+        long start = System.nanoTime();
+        int[] scanned = readWithScanner(path.toString());
+        double scannerSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        int[] streamed = PPMFormat.readPlain(path, "benchmark").getPackedRgb();
+        double streamingSeconds = (System.nanoTime() - start) / 1e9;
+
+        if (!java.util.Arrays.equals(scanned, streamed)) {
+          throw new IllegalStateException("The readers disagree");
+        }
+        System.out.printf("round %d: Scanner %.1f MB/s, streaming %.1f MB/s%n", round + 1,
+                megabytes / scannerSeconds, megabytes / streamingSeconds);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static void writePlain(Path path, int width, int height) throws IOException {
+    Random random = new Random(42);
+    try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+      writer.write("P3\n# benchmark image\n" + width + " " + height + "\n255\n");
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width * 3; x++) {
+          writer.write(Integer.toString(random.nextInt(256)));
+          writer.write(' ');
+        }
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * The reader `IOImageOperations` used before the streaming tokenizer, kept as the baseline.
+   */
+  private static int[] readWithScanner(String filename) throws FileNotFoundException {
+    Scanner sc = new Scanner(new FileInputStream(filename));
+    StringBuilder builder = new StringBuilder();
+    while (sc.hasNextLine()) {
+      String s = sc.nextLine();
+      if (s.charAt(0) != '#') {
+        builder.append(s).append(System.lineSeparator());
+      }
+    }
+
+    sc = new Scanner(builder.toString());
+    sc.next();
+    int width = sc.nextInt();
+    int height = sc.nextInt();
+    sc.nextInt();
+
+    int[] imageRGBData = new int[width * height];
+    for (int i = 0; i < imageRGBData.length; i++) {
+      int red = Math.min(255, Math.max(0, sc.nextInt()));
+      int green = Math.min(255, Math.max(0, sc.nextInt()));
+      int blue = Math.min(255, Math.max(0, sc.nextInt()));
+      imageRGBData[i] = (red << 16) | (green << 8) | blue;
+    }
+    return imageRGBData;
+  }
+}
@@ -0,0 +1,75 @@
+package controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import model.TestImages;
+
+/**
+ * The `RasterAccessTest` class contains JUnit tests checking that bulk raster access gives the
+ * same pixels as reading and writing every pixel through the color model.
+ */
+public class RasterAccessTest {
+
+  private static final int WIDTH = 37;
+  private static final int HEIGHT = 23;
+
+  private BufferedImage randomImage(int type) {
+    int[] argb = TestImages.randomArgb(type, WIDTH * HEIGHT);
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        image.setRGB(x, y, argb[y * WIDTH + x]);
+      }
+    }
+    return image;
+  }
+
+  private int[] readPerPixel(BufferedImage image) {
+    int[] rgb = new int[image.getWidth() * image.getHeight()];
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        rgb[y * image.getWidth() + x] = image.getRGB(x, y) & 0xFFFFFF;
+      }
+    }
+    return rgb;
+  }
+
+  @Test
+  public void testReadMatchesGetRgb() {
+    int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_BGR,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB, BufferedImage.TYPE_BYTE_INDEXED};
+
+    for (int type : types) {
+      BufferedImage image = randomImage(type);
+      assertArrayEquals("type " + type, readPerPixel(image), RasterAccess.readRgb(image));
+    }
+  }
+
+  @Test
+  public void testReadSubImage() {
+    BufferedImage image = randomImage(BufferedImage.TYPE_3BYTE_BGR).getSubimage(5, 3, 20, 10);
+
+    assertArrayEquals(readPerPixel(image), RasterAccess.readRgb(image));
+  }
+
+  @Test
+  public void testWriteMatchesSetRgb() {
+    int[] rgb = TestImages.randomArgb(7, WIDTH * HEIGHT);
+    BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    for (int i = 0; i < rgb.length; i++) {
+      expected.setRGB(i % WIDTH, i / WIDTH, rgb[i]);
+    }
+
+    BufferedImage actual = RasterAccess.writeRgb(rgb, WIDTH, HEIGHT);
+    assertEquals(BufferedImage.TYPE_INT_RGB, actual.getType());
+    assertArrayEquals(readPerPixel(expected), readPerPixel(actual));
+  }
+}
@@ -0,0 +1,117 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.ImageModel;
+
+/**
+ * The `ScriptCompilerTest` class contains JUnit tests for compiling scripts into plans.
+ */
+public class ScriptCompilerTest {
+
+  private ScriptPlan compile(String... lines) {
+    return ScriptCompiler.compile(Arrays.asList(lines), Collections.emptySet());
+  }
+
+  private void assertRejected(String expectedStart, String... lines) {
+    try {
+      compile(lines);
+      fail("Expected the script to be rejected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith(expectedStart));
+    }
+  }
+
+  @Test
+  public void testCommandsKnowTheirImages() {
+    ScriptPlan plan = compile(
+            "# a comment",
+            "load 'res/test-image.jpg' img",
+            "",
+            "rgb-split img r g b",
+            "brighten 10 r r-bright",
+            "rgb-combine combined r-bright g b",
+            "save 'out.ppm' combined binary");
+
+    List<ScriptCommand> commands = plan.getCommands();
+    assertEquals(5, commands.size());
+    assertEquals(2, commands.get(0).getLineNumber());
+    assertEquals(Collections.singletonList("img"), commands.get(0).getOutputs());
+    assertEquals(Arrays.asList("r", "g", "b"), commands.get(1).getOutputs());
+    assertEquals(Collections.singletonList("r"), commands.get(2).getInputs());
+    assertEquals(Arrays.asList("r-bright", "g", "b"), commands.get(3).getInputs());
+    assertEquals(Collections.singletonList("combined"), commands.get(4).getInputs());
+    assertTrue(commands.get(4).getOutputs().isEmpty());
+  }
+
+  @Test
+  public void testPixelCommandsAreColorTransforms() {
+    ScriptPlan plan = compile(
+            "load 'a.png' img",
+            "brighten 10 img b",
+            "sepia b s split 50",
+            "levels-adjust 10 100 200 s l",
+            "red-component l r",
+            "blur r x");
+
+    List<ScriptCommand> commands = plan.getCommands();
+    assertEquals(6, commands.size());
+    for (int i = 1; i <= 4; i++) {
+      assertTrue(commands.get(i) instanceof ScriptCommand.ColorTransforms);
+    }
+    assertFalse(commands.get(5) instanceof ScriptCommand.ColorTransforms);
+  }
+
+  @Test
+  public void testKnownImagesMayBeUsed() {
+    ScriptPlan plan = ScriptCompiler.compile(Collections.singletonList("sharpen old new"),
+            Collections.singleton("old"));
+
+    assertEquals(1, plan.getCommands().size());
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    assertRejected("Line 2: Split percentage should be between 0 and 100",
+            "load 'a.png' img", "blur img b split 120");
+    assertRejected("Line 2: Brightness increment should be a whole number",
+            "load 'a.png' img", "brighten lots img b");
+    assertRejected("Line 2: Invalid shadow, mid, highlight points",
+            "load 'a.png' img", "levels-adjust 100 50 200 img b");
+    assertRejected("Line 2: Compression levels should be at least 1",
+            "load 'a.png' img", "compress 50 img c levels 0");
+    assertRejected("Line 2: Usage is 'horizontal-flip",
+            "load 'a.png' img", "horizontal-flip img");
+    assertRejected("Line 1: Only PNG, JPG, JPEG and PPM images are supported",
+            "load 'a.gif' img");
+    assertRejected("Line 1: Invalid command: crop", "crop img c");
+  }
+
+  @Test
+  public void testImagesMustExistBeforeUse() {
+    assertRejected("Line 3: image 'missing' is used before it is loaded or created",
+            "load 'a.png' img", "# comment", "rgb-combine c img img missing");
+  }
+
+  @Test
+  public void testInvalidScriptDoesNotRun() {
+    Controller controller = new Controller(new StringReader(
+            "load 'res/test-image.jpg' compiler-test-image\n"
+                    + "sepia compiler-test-image compiler-test-sepia\n"
+                    + "blur compiler-test-sepia compiler-test-blur split 500\n"));
+    controller.executeScript();
+
+    assertFalse(new ImageModel().getImageMap().containsKey("compiler-test-image"));
+    assertFalse(new ImageModel().getImageMap().containsKey("compiler-test-sepia"));
+  }
+}
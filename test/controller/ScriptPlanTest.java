@@ -0,0 +1,141 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The `ScriptPlanTest` class contains JUnit tests for choosing the commands of a lazy run, for
+ * fusing chains of per-pixel commands and for counting the readers of every image.
+ */
+public class ScriptPlanTest {
+
+  private ScriptPlan compile(String... lines) {
+    return ScriptCompiler.compile(Arrays.asList(lines), Collections.emptySet());
+  }
+
+  private List<Integer> lineNumbers(List<ScriptCommand> commands) {
+    List<Integer> numbers = new ArrayList<>();
+    for (ScriptCommand command : commands) {
+      numbers.add(command.getLineNumber());
+    }
+    return numbers;
+  }
+
+  @Test
+  public void testOnlySavedImagesAreComputed() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "brighten 10 a unused",
+            "blur a b",
+            "sharpen b c",
+            "save 'b.png' b");
+
+    assertEquals(Arrays.asList(1, 3, 5), lineNumbers(plan.lazy().getCommands()));
+    assertEquals(Arrays.asList(2, 4), lineNumbers(plan.unneededCommands()));
+  }
+
+  @Test
+  public void testOverwrittenImagesAreNotNeeded() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "blur a b",
+            "sharpen a b",
+            "save 'b.png' b",
+            "brighten 10 b b",
+            "save 'c.png' b");
+
+    assertEquals(Arrays.asList(1, 3, 4, 5, 6), lineNumbers(plan.lazy().getCommands()));
+    assertEquals(Collections.singletonList(2), lineNumbers(plan.unneededCommands()));
+  }
+
+  @Test
+  public void testScriptWithoutSavesComputesNothing() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "sepia a s",
+            "greyscale s g");
+
+    assertEquals(Collections.emptyList(), plan.lazy().getCommands());
+    assertEquals(3, plan.unneededCommands().size());
+  }
+
+  @Test
+  public void testChainsAreFusedWithoutUnreadIntermediates() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "brighten 10 a b",
+            "sepia b s split 50",
+            "greyscale s g",
+            "levels-adjust 10 100 200 g l",
+            "save 's.png' s",
+            "save 'l.png' l").fused();
+
+    List<ScriptCommand> commands = plan.getCommands();
+    assertEquals(4, commands.size());
+    assertEquals(4, commands.get(1).getLines().size());
+    assertEquals(Collections.singletonList("a"), commands.get(1).getInputs());
+    assertEquals(Arrays.asList("s", "l"), commands.get(1).getOutputs());
+  }
+
+  @Test
+  public void testOverwrittenIntermediateIsNotKept() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "sepia a s",
+            "greyscale s s",
+            "save 's.png' s").fused();
+
+    assertEquals(Collections.singletonList("s"), plan.getCommands().get(1).getOutputs());
+    assertEquals(2, plan.getCommands().get(1).getLines().size());
+  }
+
+  @Test
+  public void testChainsStopAtOtherCommands() {
+    ScriptPlan plan = compile(
+            "load 'a.png' a",
+            "brighten 10 a b",
+            "blur b c",
+            "sepia c d",
+            "sepia a e").fused();
+
+    assertEquals(5, plan.getCommands().size());
+  }
+
+  @Test
+  public void testReadersOfEveryImageAreCounted() {
+    ScriptPlan plan = ScriptCompiler.compile(Arrays.asList(
+            "load 'a.png' a",
+            "rgb-combine c a a a",
+            "blur a b",
+            "brighten 10 b b",
+            "save 'b.png' b",
+            "sepia x y"), Collections.singleton("x"));
+
+    List<Map<String, Integer>> reads = plan.outputReads();
+    assertEquals(Collections.singletonMap("a", 2), reads.get(0));
+    assertEquals(Collections.singletonMap("c", 0), reads.get(1));
+    assertEquals(Collections.singletonMap("b", 1), reads.get(2));
+    assertEquals(Collections.singletonMap("b", 1), reads.get(3));
+    assertEquals(new HashMap<>(), reads.get(4));
+    assertEquals(new LinkedHashSet<>(Collections.singletonList("x")), plan.externalInputs());
+  }
+
+  @Test
+  public void testLazyOptionIsSpelledTheSameEverywhere() {
+    assertTrue(Controller.isLazyOption("-lazy"));
+    assertTrue(Controller.isLazyOption("lazy"));
+    assertFalse(Controller.isLazyOption("--lazy"));
+    assertFalse(Controller.isLazyOption(null));
+  }
+}
@@ -0,0 +1,163 @@
+package controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.ImageContent;
+import model.ImageModel;
+
+/**
+ * The `ScriptSchedulerTest` class contains JUnit tests for the dependencies between script
+ * commands and for running them in parallel.
+ */
+public class ScriptSchedulerTest {
+
+  @Rule
+  public TemporaryFolder scratch = new TemporaryFolder();
+
+  private List<List<Integer>> dependencies(String... lines) {
+    ScriptPlan plan = ScriptCompiler.compile(Arrays.asList(lines), Collections.emptySet());
+    return ScriptScheduler.dependencies(plan.getCommands());
+  }
+
+  @Test
+  public void testReadsWaitForWriters() {
+    List<List<Integer>> dependencies = dependencies(
+            "load 'a.png' a",
+            "brighten 10 a b",
+            "sepia a c",
+            "rgb-combine d b c a");
+
+    assertEquals(Collections.emptyList(), dependencies.get(0));
+    assertEquals(Collections.singletonList(0), dependencies.get(1));
+    assertEquals(Collections.singletonList(0), dependencies.get(2));
+    assertEquals(Arrays.asList(0, 1, 2), dependencies.get(3));
+  }
+
+  @Test
+  public void testOverwriteWaitsForEarlierReaders() {
+    List<List<Integer>> dependencies = dependencies(
+            "load 'a.png' a",
+            "brighten 10 a b",
+            "sepia a c",
+            "brighten 10 a a",
+            "blur a e");
+
+    assertEquals(Arrays.asList(0, 1, 2), dependencies.get(3));
+    assertEquals(Collections.singletonList(3), dependencies.get(4));
+  }
+
+  @Test
+  public void testFilesAreOrdered() {
+    List<List<Integer>> dependencies = dependencies(
+            "load 'a.png' a",
+            "brighten 10 a b",
+            "save 'out/../x.png' a",
+            "save 'x.png' b",
+            "load 'x.png' c");
+
+    assertEquals(Arrays.asList(1, 2), dependencies.get(3));
+    assertEquals(Collections.singletonList(3), dependencies.get(4));
+  }
+
+  private List<String> script(String prefix) {
+    String[] lines = {
+        "brighten 20 @src @a",
+        "sharpen @src @b split 40",
+        "sepia @src @c",
+        "greyscale @c @d",
+        "brighten 10 @src @src",
+        "blur @src @e",
+        "rgb-split @e @r @g @b2",
+        "rgb-combine @f @r @a @b2",
+        "horizontal-flip @f @f",
+        "levels-adjust 10 120 240 @f @g",
+        "compress 50 @g @h"
+    };
+    List<String> script = new ArrayList<>();
+    for (String line : lines) {
+      script.add(line.replace("@", prefix));
+    }
+    return script;
+  }
+
+  @Test
+  public void testParallelRunMatchesSequentialRun() {
+    ImageModel model = new ImageModel();
+    Random random = new Random(3);
+    int[] pixels = new int[120 * 90];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    model.loadImageInMap(new ImageContent("seq-src", 120, 90, pixels));
+    model.loadImageInMap(new ImageContent("par-src", 120, 90, pixels));
+
+    ScriptCompiler.compile(script("seq-"), model.getImageMap().keySet())
+            .execute(model, new IOImageOperations());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    new ScriptScheduler(pool).execute(ScriptCompiler.compile(script("par-"),
+            model.getImageMap().keySet()), model, new IOImageOperations());
+    pool.shutdown();
+
+    for (String name : new String[]{"src", "a", "b", "c", "d", "e", "f", "g", "h"}) {
+      assertArrayEquals(name, model.getImage("seq-" + name).getPackedRgb(),
+              model.getImage("par-" + name).getPackedRgb());
+    }
+  }
+
+  @Test
+  public void testOutputFollowsScriptOrder() {
+    ImageModel model = new ImageModel();
+    Random random = new Random(5);
+    int[] pixels = new int[120 * 90];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    model.loadImageInMap(new ImageContent("seq-src", 120, 90, pixels));
+    model.loadImageInMap(new ImageContent("par-src", 120, 90, pixels));
+    // Every save prints where it saved its image.
+    String folder = scratch.getRoot().getPath();
+    List<String> lines = new ArrayList<>(script("@"));
+    lines.add("save '" + folder + "/@a.ppm' @a");
+    lines.add("save '" + folder + "/@h.ppm' @h");
+
+    PrintStream console = System.out;
+    ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+    ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      System.setOut(new PrintStream(sequential, true));
+      ScriptCompiler.compile(prefixed(lines, "seq-"), model.getImageMap().keySet())
+              .execute(model, new IOImageOperations());
+      System.setOut(new PrintStream(parallel, true));
+      new ScriptScheduler(pool).execute(ScriptCompiler.compile(prefixed(lines, "par-"),
+              model.getImageMap().keySet()), model, new IOImageOperations());
+    } finally {
+      System.setOut(console);
+      pool.shutdown();
+    }
+
+    assertEquals(sequential.toString().replace("seq-", "par-"), parallel.toString());
+  }
+
+  private static List<String> prefixed(List<String> lines, String prefix) {
+    List<String> script = new ArrayList<>();
+    for (String line : lines) {
+      script.add(line.replace("@", prefix));
+    }
+    return script;
+  }
+}
@@ -0,0 +1,114 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This class tests the `ColorMatrix` transformations and the single pass `PixelPipeline`,
+ * including chains fused into one pass by `ImageModel`.
+ */
+public class ColorMatrixTest {
+
+  @Test
+  public void testSepiaMatchesFormula() {
+    int r = 120;
+    int g = 200;
+    int b = 40;
+    int expected = ImageContent.pack(
+            Math.min(255, (int) (0.393 * r + 0.769 * g + 0.189 * b)),
+            Math.min(255, (int) (0.349 * r + 0.686 * g + 0.168 * b)),
+            Math.min(255, (int) (0.272 * r + 0.534 * g + 0.131 * b)));
+
+    assertEquals(expected, ColorMatrix.sepia().applyToPixel(ImageContent.pack(r, g, b)));
+  }
+
+  @Test
+  public void testLumaSetsEveryChannel() {
+    int luma = (int) (0.2126 * 10 + 0.7152 * 20 + 0.0722 * 30);
+
+    assertEquals(ImageContent.pack(luma, luma, luma),
+            ColorMatrix.luma().applyToPixel(ImageContent.pack(10, 20, 30)));
+  }
+
+  @Test
+  public void testIntensityRoundsDown() {
+    ColorMatrix intensity = ColorMatrix.intensity();
+    for (int sum = 0; sum <= 765; sum++) {
+      int r = Math.min(255, sum);
+      int g = Math.min(255, sum - r);
+      int b = sum - r - g;
+      int expected = sum / 3;
+      assertEquals(ImageContent.pack(expected, expected, expected),
+              intensity.applyToPixel(ImageContent.pack(r, g, b)));
+    }
+  }
+
+  @Test
+  public void testPipelineMatchesSeparatePasses() {
+    int[] source = {0x102030, 0xF0A050, 0x336699, 0xFFFFFF, 0x000000, 0x7F7F01};
+    PixelOperation[] stages = {ColorMatrix.sepia(), ColorMatrix.luma(), ColorMatrix.intensity()};
+    int[] columns = {3, 1, 2};
+
+    int[][] results = new PixelPipeline(stages, columns).apply(source, 3, 2);
+
+    int[] expected = source;
+    for (int stage = 0; stage < stages.length; stage++) {
+      int[] next = new int[expected.length];
+      for (int index = 0; index < expected.length; index++) {
+        boolean inside = index % 3 < columns[stage];
+        next[index] = inside ? stages[stage].applyToPixel(expected[index]) : expected[index];
+      }
+      assertArrayEquals(next, results[stage]);
+      expected = next;
+    }
+  }
+
+  @Test
+  public void testPipelineSkipsStagesOutsideTheirColumns() {
+    int[] source = {0x102030, 0xF0A050, 0x336699, 0xFFFFFF, 0x000000, 0x7F7F01, 0x010203, 0xABCDEF};
+    PixelOperation[] stages = {ColorMatrix.sepia(), PointOperation.brighten(30)};
+
+    int[][] results = new PixelPipeline(stages, new int[]{0, 9})
+            .apply(source, 4, 2, new boolean[]{false, true});
+
+    assertNull(results[0]);
+    int[] expected = new int[source.length];
+    for (int index = 0; index < source.length; index++) {
+      expected[index] = stages[1].applyToPixel(source[index]);
+    }
+    assertArrayEquals(expected, results[1]);
+  }
+
+  @Test
+  public void testFusedChainMatchesSeparateOperations() {
+    Random random = new Random(11);
+    int[] pixels = new int[57 * 31];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    ImageModel model = new ImageModel();
+    model.loadImageInMap(new ImageContent("fusion-source", 57, 31, pixels));
+
+    model.brightenImage("fusion-source", "fusion-1", 25);
+    model.sepiaImage("fusion-1", "fusion-2", 40);
+    model.convertToGrayscale("fusion-2", "fusion-3", 0);
+    model.applyLevelsAdjustment(20, 110, 230, "fusion-3", "fusion-4", 70);
+    model.extractComponent("fusion-4", "fusion-5", "green");
+
+    model.applyColorTransforms("fusion-source", Arrays.asList(
+            new ColorTransform("brighten", null, 0, 25),
+            new ColorTransform("sepia", null, 40),
+            new ColorTransform("greyscale", null, 0),
+            new ColorTransform("levels", null, 70, 20, 110, 230),
+            new ColorTransform("green", "fusion-fused", 0)));
+
+    assertArrayEquals(model.getImage("fusion-5").getPackedRgb(),
+            model.getImage("fusion-fused").getPackedRgb());
+  }
+}
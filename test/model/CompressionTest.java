@@ -0,0 +1,154 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the `Compression` class: that its parallel passes give the output of the
+ * sequential compressor whatever the pool, and that the multi-level and single precision modes reconstruct the image.
+ */
+public class CompressionTest {
+
+  private static final int[] SOURCE = {
+      0x0B28C8, 0x4045CF, 0x7562E4, 0xAA7F07, 0xDF9C38,
+      0x1C6FD5, 0x518CDC, 0x86A9F1, 0xBBC614, 0xF0E345,
+      0x2DB6E2, 0x62D3E9, 0x97F0FE, 0xCC0D21, 0x012A52};
+
+  // The output of the sequential compressor the parallel one replaced, for SOURCE.
+  private static final int[][] COMPRESSED = {
+      {0x0B28D2, 0x4045D2, 0x7562EA, 0xAA7F0D, 0xE79C3E,
+          0x1C6FD2, 0x518CD2, 0x86A9EA, 0xBBC60D, 0xE7E33E,
+          0x2DB6E5, 0x62D3E5, 0x97F0FE, 0xCC0D21, 0x002A52},
+      {0x2E5AD2, 0x2E5AD2, 0x9894EA, 0x98940D, 0xE7BF00,
+          0x2E5AD2, 0x2E5AD2, 0x9894EA, 0x98940D, 0xE7BF00,
+          0x47C4E5, 0x47C4E5, 0xB1F0FE, 0xB10D21, 0x000000},
+      {0x0000D2, 0x0000D2, 0x98947C, 0x98947C, 0xE70000,
+          0x0000D2, 0x0000D2, 0x98947C, 0x98947C, 0xE70000,
+          0x0000E5, 0x0000E5, 0x000000, 0x000000, 0x000000},
+      new int[15]};
+  private static final double[] PERCENTAGES = {20, 50, 80, 100};
+
+  private static ImageContent randomImage(int width, int height) {
+    return TestImages.randomImage("img", width * 31L + height, width, height);
+  }
+
+  @Test
+  public void testOutputMatchesSequentialCompressor() {
+    ImageContent image = new ImageContent("img", 5, 3, SOURCE);
+    for (int parallelism : new int[]{1, 4}) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      for (int i = 0; i < PERCENTAGES.length; i++) {
+        assertArrayEquals("compress " + PERCENTAGES[i], COMPRESSED[i],
+                new Compression(pool).compress(image, PERCENTAGES[i]));
+      }
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testOutputDoesNotDependOnPool() {
+    ImageContent image = randomImage(300, 170);
+    ForkJoinPool single = new ForkJoinPool(1);
+    ForkJoinPool parallel = new ForkJoinPool(4);
+
+    for (double percentage : new double[]{0, 20, 75, 100}) {
+      assertArrayEquals(new Compression(single).compress(image, percentage),
+              new Compression(parallel).compress(image, percentage));
+    }
+    single.shutdown();
+    parallel.shutdown();
+  }
+
+  @Test
+  public void testTasksOfAnotherPoolUseTheCompressionPool() {
+    AtomicInteger workers = new AtomicInteger();
+    ForkJoinPool compressionPool = new ForkJoinPool(2, pool -> {
+      workers.incrementAndGet();
+      return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    }, null, false);
+    ForkJoinPool callerPool = new ForkJoinPool(1);
+    ImageContent image = randomImage(300, 170);
+
+    int[] result = callerPool.submit(() -> new Compression(compressionPool)
+            .compress(image, 40)).join();
+
+    assertTrue(workers.get() > 0);
+    assertArrayEquals(new Compression().compress(image, 40), result);
+    callerPool.shutdown();
+    compressionPool.shutdown();
+  }
+
+  @Test
+  public void testZeroPercentKeepsEvenSizedImage() {
+    ImageContent image = randomImage(64, 32);
+
+    assertArrayEquals(image.getPackedRgb(), new Compression().compress(image, 0));
+  }
+
+  @Test
+  public void testFullPyramidKeepsImageAtZeroPercent() {
+    ImageContent image = randomImage(64, 32);
+    Compression pyramid = new Compression(ForkJoinPool.commonPool(), Integer.MAX_VALUE, false);
+
+    assertArrayEquals(image.getPackedRgb(), pyramid.compress(image, 0));
+  }
+
+  @Test
+  public void testFloatPrecisionStaysCloseToImage() {
+    ImageContent image = randomImage(64, 48);
+    int[] expected = image.getPackedRgb();
+    int[] actual = new Compression(ForkJoinPool.commonPool(), 3, true).compress(image, 0);
+
+    for (int i = 0; i < expected.length; i++) {
+      for (int shift = 0; shift <= 16; shift += 8) {
+        int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+        assertTrue("pixel " + i, Math.abs(difference) <= 1);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLevelsMustBePositive() {
+    new Compression(ForkJoinPool.commonPool(), 0, false);
+  }
+
+  @Test
+  public void testCancelledCompressionStoresNothing() {
+    ImageModel model = new ImageModel(new ForkJoinPool(4));
+    model.loadImageInMap(randomImage(300, 170));
+    AtomicInteger checks = new AtomicInteger();
+    try {
+      model.runCancellable(() -> checks.incrementAndGet() > 3,
+          () -> model.compress("img", "compressed", 50));
+      fail("The compression should have been cancelled");
+    } catch (CancellationException e) {
+      assertFalse(model.getImageMap().containsKey("compressed"));
+    }
+  }
+
+  @Test
+  public void testMissingImageIsReported() {
+    ImageModel model = new ImageModel();
+    PrintStream console = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output, true));
+    try {
+      model.compress("missing", "compressed", 50);
+    } finally {
+      System.setOut(console);
+    }
+    assertEquals("Error in compressing missing by 50.0 %", output.toString().trim());
+    assertFalse(model.getImageMap().containsKey("compressed"));
+  }
+}
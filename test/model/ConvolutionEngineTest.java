@@ -0,0 +1,174 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests that the `ConvolutionEngine` produces exactly the output of a plain clamped
+ * convolution, both for small images and for images large enough to be split into bands.
+ */
+public class ConvolutionEngineTest {
+
+  private final ImageModel model = new ImageModel();
+  private final ConvolutionEngine engine = new ConvolutionEngine(new ForkJoinPool(4));
+
+  private static int[] randomImage(long seed, int width, int height) {
+    return TestImages.randomPixels(seed, width * height);
+  }
+
+  private static int[] referenceConvolution(int[] source, int width, int height, float[] kernel,
+                                            int columns) {
+    int radius = (int) Math.sqrt(kernel.length) / 2;
+    int[] result = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (x >= columns) {
+          result[y * width + x] = source[y * width + x];
+          continue;
+        }
+        int rgb = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+          float sum = 0.0f;
+          int kernelIndex = 0;
+          for (int ky = -radius; ky <= radius; ky++) {
+            for (int kx = -radius; kx <= radius; kx++) {
+              int pixelX = Math.min(width - 1, Math.max(0, x + kx));
+              int pixelY = Math.min(height - 1, Math.max(0, y + ky));
+              sum += kernel[kernelIndex++] * ((source[pixelY * width + pixelX] >> shift) & 0xFF);
+            }
+          }
+          rgb |= Math.min(255, Math.max(0, (int) sum)) << shift;
+        }
+        result[y * width + x] = rgb;
+      }
+    }
+    return result;
+  }
+
+  private void assertMatchesReference(int width, int height, int columns) {
+    int[] source = randomImage(width * 31L + height, width, height);
+    for (float[] kernel : new float[][]{model.gaussianKernel, model.sharpeningKernel}) {
+      assertArrayEquals(referenceConvolution(source, width, height, kernel, columns),
+              engine.convolve(source, width, height, kernel, columns));
+    }
+  }
+
+  @Test
+  public void testTasksOfAnotherPoolUseTheEnginePool() {
+    AtomicInteger workers = new AtomicInteger();
+    ForkJoinPool enginePool = new ForkJoinPool(2, pool -> {
+      workers.incrementAndGet();
+      return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    }, null, false);
+    ForkJoinPool callerPool = new ForkJoinPool(1);
+    int[] source = randomImage(5, 400, 300);
+
+    int[] result = callerPool.submit(() -> new ConvolutionEngine(enginePool)
+            .convolve(source, 400, 300, model.gaussianKernel, 400)).join();
+
+    assertTrue(workers.get() > 0);
+    assertArrayEquals(referenceConvolution(source, 400, 300, model.gaussianKernel, 400), result);
+    callerPool.shutdown();
+    enginePool.shutdown();
+  }
+
+  @Test
+  public void testImagesSmallerThanTheKernel() {
+    assertMatchesReference(1, 1, 1);
+    assertMatchesReference(2, 3, 2);
+    assertMatchesReference(4, 1, 4);
+  }
+
+  @Test
+  public void testSmallImage() {
+    assertMatchesReference(23, 17, 23);
+  }
+
+  @Test
+  public void testLargeImageSplitIntoBands() {
+    assertMatchesReference(613, 401, 613);
+  }
+
+  @Test
+  public void testPartialColumns() {
+    assertMatchesReference(613, 401, 250);
+    assertMatchesReference(23, 17, 1);
+    assertMatchesReference(23, 17, 0);
+  }
+
+  @Test
+  public void testGaussianKernelIsDetectedAsSeparable() {
+    assertNotNull(SeparableKernel.detect(model.gaussianKernel));
+    assertNull(SeparableKernel.detect(model.sharpeningKernel));
+  }
+
+  @Test
+  public void testSeparableBlurMatchesFullKernel() {
+    SeparableKernel kernel = SeparableKernel.detect(model.gaussianKernel);
+    for (int[] size : new int[][]{{1, 1}, {2, 5}, {23, 17}, {613, 401}}) {
+      int width = size[0];
+      int height = size[1];
+      int[] source = randomImage(width + 7L * height, width, height);
+      for (int columns : new int[]{width, width / 2}) {
+        assertArrayEquals(referenceConvolution(source, width, height, model.gaussianKernel,
+                columns), engine.convolveSeparable(source, width, height, kernel, columns));
+      }
+    }
+  }
+
+  @Test
+  public void testLargeRadiusBlurIsCloseToFullKernel() {
+    SeparableKernel kernel = SeparableKernel.gaussian(6, 2.0);
+    float[] horizontal = kernel.getHorizontal();
+    float[] full = new float[horizontal.length * horizontal.length];
+    float total = 0;
+    for (int ky = 0; ky < horizontal.length; ky++) {
+      for (int kx = 0; kx < horizontal.length; kx++) {
+        full[ky * horizontal.length + kx] = kernel.getVertical()[ky] * horizontal[kx];
+        total += full[ky * horizontal.length + kx];
+      }
+    }
+    assertEquals(1.0f, total, 1e-4f);
+
+    int[] source = randomImage(99, 97, 61);
+    int[] expected = referenceConvolution(source, 97, 61, full, 97);
+    int[] actual = engine.convolveSeparable(source, 97, 61, kernel, 97);
+    for (int i = 0; i < expected.length; i++) {
+      for (int shift = 16; shift >= 0; shift -= 8) {
+        int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+        assertTrue(Math.abs(difference) <= 1);
+      }
+    }
+  }
+
+  @Test
+  public void testCancelledBlurStoresNothing() {
+    ImageModel model = new ImageModel(new ForkJoinPool(4));
+    model.loadImageInMap(TestImages.randomImage("src", 11, 400, 300));
+    AtomicInteger checks = new AtomicInteger();
+    try {
+      // Cancelled after the first band.
+      model.runCancellable(() -> checks.incrementAndGet() > 1,
+          () -> model.blurImage("src", "blurred"));
+      fail("The blur should have been cancelled");
+    } catch (CancellationException e) {
+      assertFalse(model.getImageMap().containsKey("blurred"));
+    }
+
+    // The cancelled blur is neither cached nor does it stop the next one.
+    model.blurImage("src", "blurred");
+    assertTrue(model.getImageMap().containsKey("blurred"));
+    assertEquals(0, model.getResultCache().getHits());
+  }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class tests the packed pixel storage of the `ImageContent` class.
+ */
+public class ImageContentTest {
+
+  private final int[][][] rgbMatrix = {
+          {{255, 0, 0}, {0, 255, 0}, {10, 20, 30}},
+          {{0, 0, 255}, {255, 255, 255}, {1, 2, 3}}
+  };
+
+  @Test
+  public void testPackedPixelsAreRowMajor() {
+    ImageContent image = new ImageContent("img", rgbMatrix);
+
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertArrayEquals(new int[]{0xFF0000, 0x00FF00, 0x0A141E, 0x0000FF, 0xFFFFFF, 0x010203},
+            image.getPackedRgb());
+  }
+
+  @Test
+  public void testRgbDataMapRoundTrip() {
+    ImageContent image = new ImageContent("img", rgbMatrix);
+    int[][][] rgbData = image.getRgbDataMap();
+
+    for (int y = 0; y < rgbMatrix.length; y++) {
+      for (int x = 0; x < rgbMatrix[0].length; x++) {
+        assertArrayEquals(rgbMatrix[y][x], rgbData[y][x]);
+      }
+    }
+    assertSame(rgbData, image.getRgbDataMap());
+  }
+
+  @Test
+  public void testOutOfRangeValuesAreClamped() {
+    ImageContent image = new ImageContent("img", new int[][][]{{{300, -5, 128}}});
+
+    assertArrayEquals(new int[]{255, 0, 128}, image.getRgbDataMap()[0][0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedDimensions() {
+    new ImageContent("img", 2, 2, new int[3]);
+  }
+}
@@ -0,0 +1,215 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the bounded `ImageStore` that holds the images of an `ImageModel`.
+ */
+public class ImageStoreTest {
+
+  @Rule
+  public TemporaryFolder scratch = new TemporaryFolder();
+
+  private static ImageContent image(String name) {
+    // 100 pixels, so 400 bytes.
+    return new ImageContent(name, 10, 10, new int[100]);
+  }
+
+  private static ImageContent image(String name, int seed) {
+    int[] pixels = new int[100];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 7919 + seed) & 0xFFFFFF;
+    }
+    return new ImageContent(name, 10, 10, pixels);
+  }
+
+  @Test
+  public void testImagesAreKeptUnlessReleased() throws IOException {
+    ImageStore store = new ImageStore(400, scratch.newFolder().toPath());
+    store.put("a", image("a"));
+    store.put("b", image("b"));
+
+    assertTrue(store.contains("a"));
+    assertTrue(store.contains("b"));
+    assertEquals(400, store.getSizeInBytes());
+    assertEquals(0, store.getEvictions());
+    assertEquals(1, store.getSpills());
+  }
+
+  @Test
+  public void testImagesWithoutReadersAreEvicted() {
+    ImageStore store = new ImageStore(800);
+    store.put("a", image("a"));
+    store.updateReads(Collections.emptyList(), Collections.singletonMap("a", 2));
+    store.put("b", image("b"));
+    store.updateReads(Collections.singletonList("a"), Collections.singletonMap("b", 0));
+    store.put("c", image("c"));
+
+    // "b" is no longer read, "a" still has a reader.
+    assertFalse(store.contains("b"));
+    assertTrue(store.contains("a"));
+    assertEquals(1, store.getEvictions());
+
+    store.updateReads(Collections.singletonList("a"), Collections.singletonMap("c", 1));
+    store.put("d", image("d"));
+    assertFalse(store.contains("a"));
+    assertTrue(store.contains("c"));
+    assertEquals(800, store.getSizeInBytes());
+  }
+
+  @Test
+  public void testOverwritingKeepsTheNewImage() {
+    ImageStore store = new ImageStore(0);
+    store.put("a", image("a"));
+    store.updateReads(Collections.emptyList(), Collections.singletonMap("a", 1));
+
+    // Like "brighten 10 a a": the old image is read and the new one is still needed.
+    store.put("a", image("a"));
+    store.updateReads(Collections.singletonList("a"), Collections.singletonMap("a", 1));
+    assertTrue(store.contains("a"));
+
+    store.updateReads(Collections.singletonList("a"), Collections.emptyMap());
+    assertFalse(store.contains("a"));
+  }
+
+  @Test
+  public void testPinnedImagesAreKept() {
+    ImageStore store = new ImageStore(0);
+    store.put("a", image("a"));
+    store.updateReads(Collections.emptyList(), Collections.singletonMap("a", 1));
+    store.pin(Arrays.asList("a", "missing"));
+    store.updateReads(Collections.singletonList("a"), Collections.emptyMap());
+
+    assertTrue(store.contains("a"));
+  }
+
+  @Test
+  public void testModelsWithTheirOwnStoreAreIsolated() {
+    ImageModel model = new ImageModel(ForkJoinPool.commonPool(), new ResultCache(0),
+            new ImageStore(ImageStore.UNBOUNDED));
+    model.loadImageInMap(image("store-isolated"));
+
+    assertTrue(model.getImageMap().containsKey("store-isolated"));
+    assertNull(new ImageModel().getImage("store-isolated"));
+  }
+
+  @Test
+  public void testDefaultModelsHaveBoundedStoresOfTheirOwn() {
+    ImageModel first = new ImageModel();
+    ImageModel second = new ImageModel();
+    first.loadImageInMap(image("store-default"));
+
+    assertNull(second.getImage("store-default"));
+    assertEquals(ImageStore.DEFAULT_MAX_BYTES, first.getImageStore().getMaxBytes());
+    assertNotSame(first.getImageStore(), second.getImageStore());
+  }
+
+  @Test
+  public void testNeededImagesAreSpilledAndReloaded() throws IOException {
+    File folder = scratch.newFolder();
+    ImageStore store = new ImageStore(400, folder.toPath());
+    ImageContent a = image("a", 1);
+    ImageContent b = image("b", 2);
+    store.put("a", a);
+    store.put("b", b);
+
+    assertEquals(1, store.getSpills());
+    assertEquals(400, store.getSpilledBytes());
+    assertEquals(400, store.getBytesOnDisk());
+    assertEquals(1, folder.list().length);
+
+    // Reading "a" back spills "b".
+    assertArrayEquals(a.getPackedRgb(), store.get("a").getPackedRgb());
+    assertEquals("a", store.get("a").getName());
+    assertEquals(1, store.getReloads());
+    assertEquals(400, store.getReloadedBytes());
+    assertEquals(2, store.getSpills());
+
+    // "a" still has its scratch file, so spilling it again writes nothing.
+    assertArrayEquals(b.getPackedRgb(), store.get("b").getPackedRgb());
+    assertEquals(3, store.getSpills());
+    assertEquals(800, store.getSpilledBytes());
+    assertEquals(400, store.getSizeInBytes());
+
+    store.remove("a");
+    store.remove("b");
+    assertEquals(0, store.getBytesOnDisk());
+    assertEquals(0, folder.list().length);
+  }
+
+  @Test
+  public void testUnneededImagesAreEvictedBeforeSpilling() throws IOException {
+    ImageStore store = new ImageStore(400, scratch.newFolder().toPath());
+    store.put("a", image("a"));
+    store.updateReads(Collections.emptyList(), Collections.singletonMap("a", 0));
+    store.put("b", image("b"));
+
+    assertFalse(store.contains("a"));
+    assertEquals(1, store.getEvictions());
+    assertEquals(0, store.getSpills());
+  }
+
+  @Test
+  public void testSpillingTheSourceOfAFlipMaterializesTheFlip() throws IOException {
+    ImageStore store = new ImageStore(800, scratch.newFolder().toPath());
+    ImageContent a = image("a", 1);
+    ImageContent flipped = new ImageContent("b", 10, 10, ImageView.flipped(a, true, false));
+    store.put("a", a);
+    store.put("b", flipped);
+    store.put("c", image("c", 2));
+
+    // The flip holds no pixels of its own yet.
+    assertFalse(flipped.isMaterialized());
+    assertEquals(800, store.getSizeInBytes());
+    assertEquals(0, store.getSpills());
+
+    // Spilling "a" first materializes the flip, which then has to be spilled as well.
+    store.put("d", image("d", 3));
+    assertTrue(flipped.isMaterialized());
+    assertEquals(2, store.getSpills());
+    assertEquals(800, store.getSizeInBytes());
+
+    int[] expected = new int[100];
+    for (int y = 0; y < 10; y++) {
+      for (int x = 0; x < 10; x++) {
+        expected[y * 10 + x] = a.getPackedRgb()[y * 10 + 9 - x];
+      }
+    }
+    assertArrayEquals(expected, store.get("b").getPackedRgb());
+  }
+
+  @Test
+  public void testViewsAreCountedOnceMaterialized() {
+    ImageStore store = new ImageStore(ImageStore.UNBOUNDED);
+    ImageContent a = image("a", 1);
+    ImageContent flipped = new ImageContent("b", 10, 10, ImageView.flipped(a, true, false));
+    store.put("a", a);
+    store.put("b", flipped);
+    assertEquals(400, store.getSizeInBytes());
+
+    // Reading the flip materializes it, which the store accounts for.
+    flipped.getPackedRgb();
+    assertEquals(800, store.getSizeInBytes());
+
+    // A flip that replaces its own source is materialized before the source is let go.
+    ImageContent again = new ImageContent("a", 10, 10, ImageView.flipped(a, false, true));
+    store.put("a", again);
+    assertTrue(again.isMaterialized());
+    assertEquals(800, store.getSizeInBytes());
+  }
+}
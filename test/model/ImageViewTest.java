@@ -0,0 +1,109 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the images that are views of other images, such as flips and split results.
+ */
+public class ImageViewTest {
+
+  private final ImageModel model = new ImageModel(ForkJoinPool.commonPool(), new ResultCache(0),
+          new ImageStore(ImageStore.UNBOUNDED));
+
+  private ImageContent load(String name, int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 40503 + 17) & 0xFFFFFF;
+    }
+    ImageContent image = new ImageContent(name, width, height, pixels);
+    model.loadImageInMap(image);
+    return image;
+  }
+
+  @Test
+  public void testFlipsAreMaterializedWhenRead() {
+    ImageContent source = load("view-source", 5, 3);
+    model.horizontalFlipImage("view-source", "view-h");
+    model.verticalFlipImage("view-source", "view-v");
+
+    ImageContent horizontal = model.getImage("view-h");
+    ImageContent vertical = model.getImage("view-v");
+    assertFalse(horizontal.isMaterialized());
+    assertFalse(vertical.isMaterialized());
+
+    int[] pixels = source.getPackedRgb();
+    int[] expectedHorizontal = new int[15];
+    int[] expectedVertical = new int[15];
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 5; x++) {
+        expectedHorizontal[y * 5 + x] = pixels[y * 5 + 4 - x];
+        expectedVertical[y * 5 + x] = pixels[(2 - y) * 5 + x];
+      }
+    }
+    assertArrayEquals(expectedHorizontal, horizontal.getPackedRgb());
+    assertArrayEquals(expectedVertical, vertical.getPackedRgb());
+    assertTrue(horizontal.isMaterialized());
+  }
+
+  @Test
+  public void testChainedFlipsShareTheSource() {
+    ImageContent source = load("view-chain", 4, 6);
+    model.horizontalFlipImage("view-chain", "view-chain-h");
+    model.horizontalFlipImage("view-chain-h", "view-chain-hh");
+    model.verticalFlipImage("view-chain-hh", "view-chain-hhv");
+    model.verticalFlipImage("view-chain-hhv", "view-chain-hhvv");
+
+    // No flip in the chain needed the pixels of the one before it.
+    assertFalse(model.getImage("view-chain-h").isMaterialized());
+    assertArrayEquals(source.getPackedRgb(), model.getImage("view-chain-hhvv").getPackedRgb());
+    assertFalse(model.getImage("view-chain-hhv").isMaterialized());
+  }
+
+  @Test
+  public void testSplitResultMatchesWholeComputation() {
+    ImageContent source = load("view-split", 20, 7);
+    model.applyLevelsAdjustment(20, 100, 220, "view-split", "view-levels", 40);
+
+    ImageContent levels = model.getImage("view-levels");
+    assertFalse(levels.isMaterialized());
+    int[] expected = PointOperation.levels(20, 100, 220).apply(source.getPackedRgb(), 20, 7, 9);
+    assertArrayEquals(expected, levels.getPackedRgb());
+  }
+
+  @Test
+  public void testSplitPreviewReusesTheFullResult() {
+    ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+    ImageModel preview = new ImageModel(ForkJoinPool.commonPool(), cache,
+            new ImageStore(ImageStore.UNBOUNDED));
+    preview.setSplitPreview(true);
+    ImageContent source = load("view-preview", 30, 9);
+    preview.loadImageInMap(source);
+
+    for (int split : new int[]{10, 50, 90}) {
+      preview.blurImage("view-preview", "view-preview-blur", split);
+      preview.sepiaImage("view-preview", "view-preview-sepia", split);
+      preview.applyLevelsAdjustment(20, 100, 220, "view-preview", "view-preview-levels", split);
+      model.blurImage("view-preview", "view-blur", split);
+      model.sepiaImage("view-preview", "view-sepia", split);
+      model.applyLevelsAdjustment(20, 100, 220, "view-preview", "view-levels", split);
+
+      assertArrayEquals(model.getImage("view-blur").getPackedRgb(),
+              preview.getImage("view-preview-blur").getPackedRgb());
+      assertArrayEquals(model.getImage("view-sepia").getPackedRgb(),
+              preview.getImage("view-preview-sepia").getPackedRgb());
+      assertArrayEquals(model.getImage("view-levels").getPackedRgb(),
+              preview.getImage("view-preview-levels").getPackedRgb());
+    }
+
+    // Each filter was computed once, for the first split.
+    assertEquals(3, cache.getMisses());
+    assertEquals(6, cache.getHits());
+  }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This class tests the lookup tables compiled by the `PointOperation` class.
+ */
+public class PointOperationTest {
+
+  @Test
+  public void testBrightenClampsEveryChannel() {
+    PointOperation brighten = PointOperation.brighten(50);
+
+    assertEquals(ImageContent.pack(255, 60, 250), brighten.applyToPixel(
+            ImageContent.pack(240, 10, 200)));
+    assertEquals(ImageContent.pack(0, 0, 150), PointOperation.brighten(-100).applyToPixel(
+            ImageContent.pack(20, 100, 250)));
+  }
+
+  @Test
+  public void testOffsetsClampToRange() {
+    PointOperation offsets = PointOperation.offsets(-20, 0, 20, 10, 245);
+
+    assertEquals(ImageContent.pack(10, 128, 245), offsets.applyToPixel(
+            ImageContent.pack(15, 128, 240)));
+  }
+
+  @Test
+  public void testLevelsMatchesQuadraticCurve() {
+    PointOperation levels = PointOperation.levels(20, 100, 255);
+
+    assertEquals(ImageContent.pack(0, 128, 255), levels.applyToPixel(
+            ImageContent.pack(20, 100, 255)));
+  }
+
+  @Test
+  public void testApplyCopiesColumnsRightOfSplit() {
+    int[] source = {0x102030, 0x405060, 0x708090, 0xA0B0C0};
+    int[] result = PointOperation.channel("green").apply(source, 2, 2, 1);
+
+    assertArrayEquals(new int[]{0x002000, 0x405060, 0x008000, 0xA0B0C0}, result);
+  }
+
+  @Test
+  public void testChannelOnlyForSingleChannels() {
+    assertEquals(0x000030, PointOperation.channel("blue").applyToPixel(0x102030));
+    assertNull(PointOperation.channel("luma"));
+  }
+}
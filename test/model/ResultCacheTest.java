@@ -0,0 +1,136 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class tests the `ResultCache` of operation results used by `ImageModel`.
+ */
+public class ResultCacheTest {
+
+  private static int[] pixels(int count, int seed) {
+    int[] pixels = new int[count];
+    for (int i = 0; i < count; i++) {
+      pixels[i] = (i * 2654435 + seed * 97) & 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+  @Test
+  public void testContentHashIgnoresName() {
+    ImageContent first = new ImageContent("cache-first", 4, 3, pixels(12, 1));
+    ImageContent second = new ImageContent("cache-second", 4, 3, pixels(12, 1));
+
+    assertEquals(first.getContentHash(), second.getContentHash());
+    assertNotEquals(first.getContentHash(),
+            new ImageContent("cache-first", 3, 4, pixels(12, 1)).getContentHash());
+    assertNotEquals(first.getContentHash(),
+            new ImageContent("cache-first", 4, 3, pixels(12, 2)).getContentHash());
+  }
+
+  @Test
+  public void testRepeatedOperationIsReused() {
+    ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+    ImageModel model = new ImageModel(ForkJoinPool.commonPool(), cache);
+    model.loadImageInMap(new ImageContent("cache-a", 30, 20, pixels(600, 3)));
+    model.loadImageInMap(new ImageContent("cache-copy", 30, 20, pixels(600, 3)));
+
+    model.blurImage("cache-a", "cache-blur-1", 0);
+    model.blurImage("cache-copy", "cache-blur-2", 0);
+    model.blurImage("cache-a", "cache-blur-split", 50);
+
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertSame(model.getImage("cache-blur-1").getPackedRgb(),
+            model.getImage("cache-blur-2").getPackedRgb());
+
+    // The cached result is the same as computing it again.
+    ImageModel uncached = new ImageModel(ForkJoinPool.commonPool(), new ResultCache(0));
+    uncached.loadImageInMap(new ImageContent("cache-copy", 30, 20, pixels(600, 3)));
+    uncached.blurImage("cache-copy", "cache-blur-3", 0);
+    assertArrayEquals(model.getImage("cache-blur-1").getPackedRgb(),
+            uncached.getImage("cache-blur-3").getPackedRgb());
+  }
+
+  @Test
+  public void testParametersArePartOfTheKey() {
+    ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+    ImageModel model = new ImageModel(ForkJoinPool.commonPool(), cache);
+    model.loadImageInMap(new ImageContent("cache-p", 10, 10, pixels(100, 4)));
+
+    model.brightenImage("cache-p", "cache-p1", 10);
+    model.brightenImage("cache-p", "cache-p2", 20);
+    model.extractComponent("cache-p", "cache-p3", "red");
+    model.extractComponent("cache-p", "cache-p4", "green");
+
+    assertEquals(0, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    ImageContent a = new ImageContent("cache-lru-a", 10, 10, pixels(100, 5));
+    ImageContent b = new ImageContent("cache-lru-b", 10, 10, pixels(100, 6));
+    ImageContent c = new ImageContent("cache-lru-c", 10, 10, pixels(100, 7));
+    // Room for two results of 100 pixels along with their sources.
+    ResultCache cache = new ResultCache(1600);
+
+    cache.computeIfAbsent("op", new ImageContent[]{a}, () -> new int[][]{new int[100]});
+    cache.computeIfAbsent("op", new ImageContent[]{b}, () -> new int[][]{new int[100]});
+    cache.computeIfAbsent("op", new ImageContent[]{a}, () -> new int[][]{new int[100]});
+    cache.computeIfAbsent("op", new ImageContent[]{c}, () -> new int[][]{new int[100]});
+
+    assertEquals(1, cache.getEvictions());
+    assertEquals(1600, cache.getSizeInBytes());
+    cache.computeIfAbsent("op", new ImageContent[]{a}, () -> new int[][]{new int[100]});
+    assertEquals(2, cache.getHits());
+    cache.computeIfAbsent("op", new ImageContent[]{b}, () -> new int[][]{new int[100]});
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  public void testCollidingHashesDoNotShareResults() {
+    // Images whose content hashes collide.
+    ImageContent first = new ImageContent("cache-collide-1", 10, 10, pixels(100, 9)) {
+      @Override
+      public synchronized long getContentHash() {
+        return 42;
+      }
+    };
+    ImageContent second = new ImageContent("cache-collide-2", 10, 10, pixels(100, 10)) {
+      @Override
+      public synchronized long getContentHash() {
+        return 42;
+      }
+    };
+    ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+
+    int[][] firstResult = cache.computeIfAbsent("op", new ImageContent[]{first},
+        () -> new int[][]{pixels(100, 11)});
+    int[][] secondResult = cache.computeIfAbsent("op", new ImageContent[]{second},
+        () -> new int[][]{pixels(100, 12)});
+
+    assertEquals(0, cache.getHits());
+    assertArrayEquals(pixels(100, 12), secondResult[0]);
+    assertArrayEquals(pixels(100, 11), firstResult[0]);
+  }
+
+  @Test
+  public void testResultLargerThanBoundIsNotCached() {
+    ImageContent a = new ImageContent("cache-big", 10, 10, pixels(100, 8));
+    ResultCache cache = new ResultCache(100);
+
+    cache.computeIfAbsent("op", new ImageContent[]{a}, () -> new int[][]{new int[100]});
+    cache.computeIfAbsent("op", new ImageContent[]{a}, () -> new int[][]{new int[100]});
+
+    assertEquals(0, cache.getHits());
+    assertEquals(0, cache.getSizeInBytes());
+  }
+}
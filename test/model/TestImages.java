@@ -0,0 +1,58 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * This class creates the random images shared by the tests. The same seed always gives the same
+ * pixels.
+ */
+public final class TestImages {
+
+  private TestImages() {
+  }
+
+  /**
+   * Creates random packed 0xRRGGBB pixels.
+   *
+   * @param seed  The seed of the pixels.
+   * @param count The number of pixels.
+   * @return The pixels.
+   */
+  public static int[] randomPixels(long seed, int count) {
+    Random random = new Random(seed);
+    int[] pixels = new int[count];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    return pixels;
+  }
+
+  /**
+   * Creates random 0xAARRGGBB pixels, with a random alpha channel.
+   *
+   * @param seed  The seed of the pixels.
+   * @param count The number of pixels.
+   * @return The pixels.
+   */
+  public static int[] randomArgb(long seed, int count) {
+    Random random = new Random(seed);
+    int[] pixels = new int[count];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt();
+    }
+    return pixels;
+  }
+
+  /**
+   * Creates an image with random pixels.
+   *
+   * @param name   The name of the image.
+   * @param seed   The seed of the pixels.
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @return The image.
+   */
+  public static ImageContent randomImage(String name, long seed, int width, int height) {
+    return new ImageContent(name, width, height, randomPixels(seed, width * height));
+  }
+}